@@ -15,7 +15,8 @@ public class Distance {
         // root of the sum.
         double sum = 0;
         for (int i = 0; i < x.length; i++) {
-            sum += ((x[i] - y[i]) * (x[i] - y[i]));
+            double d = x[i] - y[i];
+            sum += d * d;
         }
         return Math.sqrt(sum);
     }
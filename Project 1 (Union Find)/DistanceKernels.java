@@ -0,0 +1,385 @@
+import stdlib.StdOut;
+import stdlib.StdRandom;
+
+// A library of static methods for distance kernels over double[] and float[] position vectors,
+// including batched kernels that measure one query against every row of a flat row-major matrix.
+//
+// The loops keep four independent accumulators so the JIT can overlap (and, on most platforms,
+// vectorize) the floating-point adds instead of waiting on one long dependency chain. Float
+// vectors are accumulated in double precision.
+public class DistanceKernels {
+    // Not instantiable.
+    private DistanceKernels() {
+    }
+
+    // Returns the Euclidean distance between x and y.
+    public static double euclidean(double[] x, double[] y) {
+        return Math.sqrt(squaredEuclidean(x, y));
+    }
+
+    // Returns the Euclidean distance between x and y.
+    public static double euclidean(float[] x, float[] y) {
+        return Math.sqrt(squaredEuclidean(x, y));
+    }
+
+    // Returns the squared Euclidean distance between x and y.
+    public static double squaredEuclidean(double[] x, double[] y) {
+        checkLengths(x.length, y.length);
+        return squaredEuclidean(x, y, 0, x.length);
+    }
+
+    // Returns the squared Euclidean distance between x and y.
+    public static double squaredEuclidean(float[] x, float[] y) {
+        checkLengths(x.length, y.length);
+        return squaredEuclidean(x, y, 0, x.length);
+    }
+
+    // Returns the Manhattan (L1) distance between x and y.
+    public static double manhattan(double[] x, double[] y) {
+        checkLengths(x.length, y.length);
+        return manhattan(x, y, 0, x.length);
+    }
+
+    // Returns the Manhattan (L1) distance between x and y.
+    public static double manhattan(float[] x, float[] y) {
+        checkLengths(x.length, y.length);
+        return manhattan(x, y, 0, x.length);
+    }
+
+    // Returns the cosine distance (1 - cosine similarity) between x and y, or NaN if either is
+    // the zero vector.
+    public static double cosine(double[] x, double[] y) {
+        checkLengths(x.length, y.length);
+        return cosine(dot(x, y, 0, x.length), dot(x, x, 0, x.length), dot(y, y, 0, y.length));
+    }
+
+    // Returns the cosine distance (1 - cosine similarity) between x and y, or NaN if either is
+    // the zero vector.
+    public static double cosine(float[] x, float[] y) {
+        checkLengths(x.length, y.length);
+        return cosine(dot(x, y, 0, x.length), dot(x, x, 0, x.length), dot(y, y, 0, y.length));
+    }
+
+    // Returns the Euclidean distance between x and y, summed with Kahan-Babuska (Neumaier)
+    // compensation.
+    public static double euclideanKahan(double[] x, double[] y) {
+        return Math.sqrt(squaredEuclideanKahan(x, y));
+    }
+
+    // Returns the squared Euclidean distance between x and y, summed with Kahan-Babuska
+    // (Neumaier) compensation. Slower than squaredEuclidean(), but the rounding error does not
+    // grow with the length of the vectors.
+    public static double squaredEuclideanKahan(double[] x, double[] y) {
+        checkLengths(x.length, y.length);
+        double sum = 0;
+        double c = 0;
+        for (int i = 0; i < x.length; i++) {
+            double d = x[i] - y[i];
+            double term = d * d;
+            double t = sum + term;
+            c += sum >= term ? (sum - t) + term : (term - t) + sum;
+            sum = t;
+        }
+        return sum + c;
+    }
+
+    // Returns the Manhattan (L1) distance between x and y, summed with Kahan-Babuska (Neumaier)
+    // compensation.
+    public static double manhattanKahan(double[] x, double[] y) {
+        checkLengths(x.length, y.length);
+        double sum = 0;
+        double c = 0;
+        for (int i = 0; i < x.length; i++) {
+            double term = Math.abs(x[i] - y[i]);
+            double t = sum + term;
+            c += sum >= term ? (sum - t) + term : (term - t) + sum;
+            sum = t;
+        }
+        return sum + c;
+    }
+
+    // Sets out[r] to the Euclidean distance between q and row r of the row-major matrix rows,
+    // which has out.length rows of q.length columns.
+    public static void euclidean(double[] q, double[] rows, double[] out) {
+        squaredEuclidean(q, rows, out);
+        for (int r = 0; r < out.length; r++) {
+            out[r] = Math.sqrt(out[r]);
+        }
+    }
+
+    // Sets out[r] to the squared Euclidean distance between q and row r of the row-major matrix
+    // rows, which has out.length rows of q.length columns.
+    public static void squaredEuclidean(double[] q, double[] rows, double[] out) {
+        int dim = q.length;
+        checkBatch(dim, rows.length, out.length);
+        for (int r = 0, off = 0; r < out.length; r++, off += dim) {
+            out[r] = squaredEuclidean(q, rows, off, dim);
+        }
+    }
+
+    // Sets out[r] to the Manhattan (L1) distance between q and row r of the row-major matrix
+    // rows, which has out.length rows of q.length columns.
+    public static void manhattan(double[] q, double[] rows, double[] out) {
+        int dim = q.length;
+        checkBatch(dim, rows.length, out.length);
+        for (int r = 0, off = 0; r < out.length; r++, off += dim) {
+            out[r] = manhattan(q, rows, off, dim);
+        }
+    }
+
+    // Sets out[r] to the cosine distance between q and row r of the row-major matrix rows, which
+    // has out.length rows of q.length columns. The norm of q is computed once.
+    public static void cosine(double[] q, double[] rows, double[] out) {
+        int dim = q.length;
+        checkBatch(dim, rows.length, out.length);
+        double qq = dot(q, q, 0, dim);
+        for (int r = 0, off = 0; r < out.length; r++, off += dim) {
+            out[r] = cosine(dot(q, rows, off, dim), qq, dot(rows, rows, off, off, dim));
+        }
+    }
+
+    // Sets out[r] to the Euclidean distance between q and row r of the row-major matrix rows,
+    // which has out.length rows of q.length columns.
+    public static void euclidean(float[] q, float[] rows, double[] out) {
+        squaredEuclidean(q, rows, out);
+        for (int r = 0; r < out.length; r++) {
+            out[r] = Math.sqrt(out[r]);
+        }
+    }
+
+    // Sets out[r] to the squared Euclidean distance between q and row r of the row-major matrix
+    // rows, which has out.length rows of q.length columns.
+    public static void squaredEuclidean(float[] q, float[] rows, double[] out) {
+        int dim = q.length;
+        checkBatch(dim, rows.length, out.length);
+        for (int r = 0, off = 0; r < out.length; r++, off += dim) {
+            out[r] = squaredEuclidean(q, rows, off, dim);
+        }
+    }
+
+    // Sets out[r] to the Manhattan (L1) distance between q and row r of the row-major matrix
+    // rows, which has out.length rows of q.length columns.
+    public static void manhattan(float[] q, float[] rows, double[] out) {
+        int dim = q.length;
+        checkBatch(dim, rows.length, out.length);
+        for (int r = 0, off = 0; r < out.length; r++, off += dim) {
+            out[r] = manhattan(q, rows, off, dim);
+        }
+    }
+
+    // Sets out[r] to the cosine distance between q and row r of the row-major matrix rows, which
+    // has out.length rows of q.length columns. The norm of q is computed once.
+    public static void cosine(float[] q, float[] rows, double[] out) {
+        int dim = q.length;
+        checkBatch(dim, rows.length, out.length);
+        double qq = dot(q, q, 0, dim);
+        for (int r = 0, off = 0; r < out.length; r++, off += dim) {
+            out[r] = cosine(dot(q, rows, off, dim), qq, dot(rows, rows, off, off, dim));
+        }
+    }
+
+    // Returns the squared Euclidean distance between x[0 .. len) and y[off .. off + len).
+    static double squaredEuclidean(double[] x, double[] y, int off, int len) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < len; i += 4) {
+            double d0 = x[i] - y[off + i];
+            double d1 = x[i + 1] - y[off + i + 1];
+            double d2 = x[i + 2] - y[off + i + 2];
+            double d3 = x[i + 3] - y[off + i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < len; i++) {
+            double d = x[i] - y[off + i];
+            s0 += d * d;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    // Returns the squared Euclidean distance between x[0 .. len) and y[off .. off + len).
+    static double squaredEuclidean(float[] x, float[] y, int off, int len) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < len; i += 4) {
+            double d0 = (double) x[i] - y[off + i];
+            double d1 = (double) x[i + 1] - y[off + i + 1];
+            double d2 = (double) x[i + 2] - y[off + i + 2];
+            double d3 = (double) x[i + 3] - y[off + i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < len; i++) {
+            double d = (double) x[i] - y[off + i];
+            s0 += d * d;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    // Returns the Manhattan distance between x[0 .. len) and y[off .. off + len).
+    private static double manhattan(double[] x, double[] y, int off, int len) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < len; i += 4) {
+            s0 += Math.abs(x[i] - y[off + i]);
+            s1 += Math.abs(x[i + 1] - y[off + i + 1]);
+            s2 += Math.abs(x[i + 2] - y[off + i + 2]);
+            s3 += Math.abs(x[i + 3] - y[off + i + 3]);
+        }
+        for (; i < len; i++) {
+            s0 += Math.abs(x[i] - y[off + i]);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    // Returns the Manhattan distance between x[0 .. len) and y[off .. off + len).
+    private static double manhattan(float[] x, float[] y, int off, int len) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < len; i += 4) {
+            s0 += Math.abs((double) x[i] - y[off + i]);
+            s1 += Math.abs((double) x[i + 1] - y[off + i + 1]);
+            s2 += Math.abs((double) x[i + 2] - y[off + i + 2]);
+            s3 += Math.abs((double) x[i + 3] - y[off + i + 3]);
+        }
+        for (; i < len; i++) {
+            s0 += Math.abs((double) x[i] - y[off + i]);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    // Returns the dot product of x[0 .. len) and y[off .. off + len).
+    private static double dot(double[] x, double[] y, int off, int len) {
+        return dot(x, y, 0, off, len);
+    }
+
+    // Returns the dot product of x[0 .. len) and y[off .. off + len).
+    private static double dot(float[] x, float[] y, int off, int len) {
+        return dot(x, y, 0, off, len);
+    }
+
+    // Returns the dot product of x[xOff .. xOff + len) and y[yOff .. yOff + len).
+    static double dot(double[] x, double[] y, int xOff, int yOff, int len) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < len; i += 4) {
+            s0 += x[xOff + i] * y[yOff + i];
+            s1 += x[xOff + i + 1] * y[yOff + i + 1];
+            s2 += x[xOff + i + 2] * y[yOff + i + 2];
+            s3 += x[xOff + i + 3] * y[yOff + i + 3];
+        }
+        for (; i < len; i++) {
+            s0 += x[xOff + i] * y[yOff + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    // Returns the dot product of x[xOff .. xOff + len) and y[yOff .. yOff + len).
+    private static double dot(float[] x, float[] y, int xOff, int yOff, int len) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < len; i += 4) {
+            s0 += (double) x[xOff + i] * y[yOff + i];
+            s1 += (double) x[xOff + i + 1] * y[yOff + i + 1];
+            s2 += (double) x[xOff + i + 2] * y[yOff + i + 2];
+            s3 += (double) x[xOff + i + 3] * y[yOff + i + 3];
+        }
+        for (; i < len; i++) {
+            s0 += (double) x[xOff + i] * y[yOff + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    // Returns the cosine distance given the dot product xy and the squared norms xx and yy.
+    private static double cosine(double xy, double xx, double yy) {
+        if (xx == 0 || yy == 0) {
+            return Double.NaN;
+        }
+        return 1 - xy / Math.sqrt(xx * yy);
+    }
+
+    // Throws if two vector lengths differ.
+    private static void checkLengths(int a, int b) {
+        if (a != b) {
+            throw new IllegalArgumentException("Vector lengths differ");
+        }
+    }
+
+    // Throws if a row-major matrix of length rowsLength does not hold outLength rows of dim
+    // columns.
+    private static void checkBatch(int dim, int rowsLength, int outLength) {
+        if ((long) dim * outLength != rowsLength) {
+            throw new IllegalArgumentException("Illegal matrix dimensions");
+        }
+    }
+
+    // Unit tests the library.
+    public static void main(String[] args) {
+        int dim = Integer.parseInt(args[0]);
+        int n = Integer.parseInt(args[1]);
+        double[] q = new double[dim];
+        double[] rows = new double[dim * n];
+        for (int i = 0; i < dim; i++) {
+            q[i] = StdRandom.gaussian();
+        }
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = StdRandom.gaussian();
+        }
+
+        // Compare the batched kernels against a naive loop, one row at a time.
+        double[] out = new double[n];
+        double[] l1 = new double[n];
+        double[] cos = new double[n];
+        euclidean(q, rows, out);
+        manhattan(q, rows, l1);
+        cosine(q, rows, cos);
+        double maxErr = 0;
+        for (int r = 0; r < n; r++) {
+            double ss = 0, sa = 0, xy = 0, xx = 0, yy = 0;
+            for (int i = 0; i < dim; i++) {
+                double x = q[i];
+                double y = rows[r * dim + i];
+                ss += (x - y) * (x - y);
+                sa += Math.abs(x - y);
+                xy += x * y;
+                xx += x * x;
+                yy += y * y;
+            }
+            maxErr = Math.max(maxErr, Math.abs(out[r] - Math.sqrt(ss)));
+            maxErr = Math.max(maxErr, Math.abs(l1[r] - sa));
+            maxErr = Math.max(maxErr, Math.abs(cos[r] - (1 - xy / Math.sqrt(xx * yy))));
+            double[] row = new double[dim];
+            System.arraycopy(rows, r * dim, row, 0, dim);
+            maxErr = Math.max(maxErr, Math.abs(euclideanKahan(q, row) - Math.sqrt(ss)));
+        }
+        StdOut.printf("max error vs. naive loop = %.3e\n", maxErr);
+
+        // Float coordinates must be widened before subtracting: near 1e8 a difference computed
+        // in float rounds to a multiple of 8.
+        float[] fq = new float[dim];
+        float[] fr = new float[dim];
+        double expected = 0;
+        for (int i = 0; i < dim; i++) {
+            fq[i] = 1e8f + (float) StdRandom.uniform(0, 8) * 8;
+            fr[i] = (float) StdRandom.gaussian();
+            double d = (double) fq[i] - fr[i];
+            expected += d * d;
+        }
+        StdOut.printf("float squaredEuclidean relative error = %.3e\n",
+                Math.abs(squaredEuclidean(fq, fr) - expected) / Math.max(1, expected));
+
+        // Time the batched squared Euclidean kernel.
+        int reps = Math.max(1, 100000000 / Math.max(1, rows.length));
+        long start = System.nanoTime();
+        for (int i = 0; i < reps; i++) {
+            squaredEuclidean(q, rows, out);
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        StdOut.printf("squaredEuclidean batch: %.2f Gelements/s\n",
+                (double) reps * rows.length / elapsed / 1e9);
+    }
+}
@@ -0,0 +1,253 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import stdlib.StdOut;
+import stdlib.StdRandom;
+
+// A data type to represent the Euclidean distances between all pairs of n points, stored as the
+// packed upper triangle (i < j) in row order.
+//
+// Distances are computed as sqrt(|x|^2 + |y|^2 - 2 x.y), with the squared norms computed once per
+// point and the dot products computed tile by tile so that a tile of rows stays in cache while
+// it is reused. Bands of rows are computed in parallel on the common fork-join pool. The
+// formulation loses relative accuracy for points that are very close compared to their norms.
+public class DistanceMatrix {
+    // Header bytes "DISTMAT1", read as a little-endian long.
+    private static final long MAGIC = 0x3154414d54534944L;
+
+    // Size of the file header (the magic number and n, each a little-endian long), in bytes.
+    private static final long HEADER = 16;
+
+    // Points per tile in the column (j) direction.
+    private static final int TILE = 64;
+
+    // Number of doubles in the scratch buffer of one band of rows.
+    private static final int BAND = 1 << 20;
+
+    private int n;       // number of points
+    private double[] d;  // packed upper triangle
+
+    // Constructs a distance matrix over n points backed by the packed upper triangle d.
+    private DistanceMatrix(int n, double[] d) {
+        this.n = n;
+        this.d = d;
+    }
+
+    // Returns the distance matrix of the rows of points, held in memory.
+    public static DistanceMatrix of(DenseMatrix points) {
+        int n = points.rows();
+        long pairs = rowStart(n, n);
+        if (pairs > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many points; use write() instead");
+        }
+        double[] tri = new double[(int) pairs];
+        compute(points, (i0, i1, buf) -> {
+            // Copy each row of the band, from just past the diagonal, into the triangle.
+            for (int i = i0; i < i1; i++) {
+                System.arraycopy(buf, (i - i0) * n + i + 1, tri, (int) rowStart(n, i),
+                        n - i - 1);
+            }
+        });
+        return new DistanceMatrix(n, tri);
+    }
+
+    // Writes the distance matrix of the rows of points to the file at path, as a 16-byte header
+    // (the magic number and n, each a little-endian long) followed by the packed upper triangle
+    // as little-endian doubles. Each band is written with a positional write as soon as it is
+    // computed, so the triangle never has to fit in the heap and no mappings pile up.
+    public static void write(DenseMatrix points, Path path) {
+        int n = points.rows();
+        try (RandomAccessFile raf = new RandomAccessFile(path.toFile(), "rw");
+             FileChannel out = raf.getChannel()) {
+            raf.setLength(0);
+            raf.setLength(HEADER + rowStart(n, n) * Double.BYTES);
+            ByteBuffer header = ByteBuffer.allocate((int) HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            header.putLong(MAGIC).putLong(n).flip();
+            out.write(header, 0);
+            compute(points, (i0, i1, buf) -> {
+                long first = rowStart(n, i0);
+                long count = rowStart(n, i1) - first;
+                if (count == 0) {
+                    return;
+                }
+                ByteBuffer bytes = ByteBuffer.allocate((int) count * Double.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                DoubleBuffer win = bytes.asDoubleBuffer();
+                for (int i = i0; i < i1; i++) {
+                    win.put((int) (rowStart(n, i) - first), buf, (i - i0) * n + i + 1,
+                            n - i - 1);
+                }
+                try {
+                    long position = HEADER + first * Double.BYTES;
+                    while (bytes.hasRemaining()) {
+                        position += out.write(bytes, position);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Returns the number of points.
+    public int size() {
+        return n;
+    }
+
+    // Returns the distance between points i and j.
+    public double get(int i, int j) {
+        if (i < 0 || i >= n || j < 0 || j >= n) {
+            throw new IndexOutOfBoundsException("Illegal i or j");
+        }
+        if (i == j) {
+            return 0;
+        }
+        return i < j ? d[(int) (rowStart(n, i) + j - i - 1)]
+                : d[(int) (rowStart(n, j) + i - j - 1)];
+    }
+
+    // Returns the number of entries of the packed upper triangle of an n x n matrix that come
+    // before row i.
+    private static long rowStart(long n, long i) {
+        return i * n - i * (i + 1) / 2;
+    }
+
+    // Computes the distances of all pairs of rows of points, one band of rows at a time, and
+    // hands each band to sink.
+    private static void compute(DenseMatrix points, BandSink sink) {
+        int n = points.rows();
+        int dim = points.cols();
+        double[] x = points.data();
+        double[] norms = new double[n];
+        for (int i = 0; i < n; i++) {
+            norms[i] = DistanceKernels.dot(x, x, i * dim, i * dim, dim);
+        }
+        int rows = Math.max(1, Math.min(TILE, BAND / Math.max(1, n)));
+        ForkJoinPool.commonPool().invoke(new BandTask(x, norms, n, dim, rows, 0, n, sink));
+    }
+
+    // Computes the distances from rows [i0, i1) of x to every later row, writing row i into
+    // buf[(i - i0) * n + j] for i < j < n.
+    private static void band(double[] x, double[] norms, int n, int dim, int i0, int i1,
+                             double[] buf) {
+        for (int j0 = i0 + 1; j0 < n; j0 += TILE) {
+            int j1 = Math.min(n, j0 + TILE);
+
+            // Rows [j0, j1) are reused by every row of the band, so they stay in cache.
+            for (int i = i0; i < i1; i++) {
+                int row = (i - i0) * n;
+                int xi = i * dim;
+                double ni = norms[i];
+                for (int j = Math.max(j0, i + 1); j < j1; j++) {
+                    double dot = DistanceKernels.dot(x, x, xi, j * dim, dim);
+                    double d2 = ni + norms[j] - 2 * dot;
+                    buf[row + j] = d2 > 0 ? Math.sqrt(d2) : 0;
+                }
+            }
+        }
+    }
+
+    // A consumer of finished bands of rows.
+    private interface BandSink {
+        // Receives rows [i0, i1), row i being buf[(i - i0) * n + j] for i < j < n.
+        void accept(int i0, int i1, double[] buf);
+    }
+
+    // A fork-join task that computes a range of rows, one band at a time.
+    private static class BandTask extends RecursiveAction {
+        private double[] x;     // the points, row-major
+        private double[] norms; // squared norms of the points
+        private int n;          // number of points
+        private int dim;        // number of coordinates per point
+        private int rows;       // rows per band
+        private int lo;         // first row (inclusive)
+        private int hi;         // last row (exclusive)
+        private BandSink sink;  // consumer of finished bands
+
+        // Constructs a task for rows [lo, hi).
+        BandTask(double[] x, double[] norms, int n, int dim, int rows, int lo, int hi,
+                 BandSink sink) {
+            this.x = x;
+            this.norms = norms;
+            this.n = n;
+            this.dim = dim;
+            this.rows = rows;
+            this.lo = lo;
+            this.hi = hi;
+            this.sink = sink;
+        }
+
+        // Computes the rows, splitting the range in half while it spans several bands. Early
+        // rows have more pairs than late ones, so the split point balances pairs, not rows.
+        protected void compute() {
+            if (hi - lo <= rows) {
+                double[] buf = new double[(hi - lo) * n];
+                band(x, norms, n, dim, lo, hi, buf);
+                sink.accept(lo, hi, buf);
+                return;
+            }
+            long half = (rowStart(n, lo) + rowStart(n, hi)) / 2;
+            int mid = lo + rows;
+            while (mid + rows < hi && rowStart(n, mid) < half) {
+                mid += rows;
+            }
+            invokeAll(new BandTask(x, norms, n, dim, rows, lo, mid, sink),
+                    new BandTask(x, norms, n, dim, rows, mid, hi, sink));
+        }
+    }
+
+    // Unit tests the data type.
+    public static void main(String[] args) throws IOException {
+        int n = Integer.parseInt(args[0]);
+        int dim = Integer.parseInt(args[1]);
+        DenseMatrix points = new DenseMatrix(n, dim);
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < dim; k++) {
+                points.set(i, k, StdRandom.uniform());
+            }
+        }
+
+        long start = System.nanoTime();
+        DistanceMatrix dm = DistanceMatrix.of(points);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        double maxErr = 0;
+        double[] x = points.data();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                double[] a = new double[dim];
+                double[] b = new double[dim];
+                System.arraycopy(x, i * dim, a, 0, dim);
+                System.arraycopy(x, j * dim, b, 0, dim);
+                maxErr = Math.max(maxErr, Math.abs(dm.get(i, j) - DistanceKernels.euclidean(a, b)));
+            }
+        }
+        StdOut.printf("of():    %.3f s, max error = %.3e\n", elapsed, maxErr);
+
+        Path path = Files.createTempFile("distances", ".bin");
+        try {
+            start = System.nanoTime();
+            write(points, path);
+            elapsed = (System.nanoTime() - start) / 1e9;
+            ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            boolean same = bytes.getLong() == MAGIC && bytes.getLong() == n;
+            for (int k = 0; k < dm.d.length; k++) {
+                same &= bytes.getDouble() == dm.d[k];
+            }
+            StdOut.printf("write(): %.3f s, same as of()? %s\n", elapsed, same);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
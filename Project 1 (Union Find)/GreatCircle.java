@@ -1,13 +1,59 @@
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import stdlib.StdOut;
 
 public class GreatCircle {
+    // Size of each chunk of input handed to a worker, in bytes.
+    private static final int CHUNK = 1 << 20;
+
+    // Exact powers of ten, for the fast path of the number parser.
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15,
+        1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
     // Entry point.
-    public static void main(String[] args) {
-        // Accept x1 (double), y1 (double), x2 (double), and y2 (double) as command-line arguments.
-        double x1 = Double.parseDouble(args[0]);
-        double y1 = Double.parseDouble(args[1]);
-        double x2 = Double.parseDouble(args[2]);
-        double y2 = Double.parseDouble(args[3]);
+    //
+    // With four command-line arguments x1, y1, x2, and y2, writes the great-circle distance
+    // between (x1, y1) and (x2, y2). With no arguments (or "-"), or with a file name, reads one
+    // quadruple "x1 y1 x2 y2" per line from standard input (or the file) and writes one distance
+    // per line, in input order.
+    public static void main(String[] args) throws IOException {
+        if (args.length == 4) {
+            // Accept x1 (double), y1 (double), x2 (double), and y2 (double) as command-line
+            // arguments.
+            double x1 = Double.parseDouble(args[0]);
+            double y1 = Double.parseDouble(args[1]);
+            double x2 = Double.parseDouble(args[2]);
+            double y2 = Double.parseDouble(args[3]);
+
+            // Write the great-circle distance to standard output.
+            StdOut.println(distance(x1, y1, x2, y2));
+        } else if (args.length == 0 || args.length == 1 && args[0].equals("-")) {
+            stream(System.in, System.out);
+        } else if (args.length == 1) {
+            try (InputStream in = new FileInputStream(args[0])) {
+                stream(in, System.out);
+            }
+        } else {
+            throw new IllegalArgumentException("Usage: GreatCircle [x1 y1 x2 y2 | file | -]");
+        }
+    }
+
+    // Returns the great-circle distance between (x1, y1) and (x2, y2), given in degrees.
+    private static double distance(double x1, double y1, double x2, double y2) {
         // names with r are in radian form
         // Convert the angles to radians.
         double x1r = Math.toRadians(x1);
@@ -15,9 +61,198 @@ public class GreatCircle {
         double x2r = Math.toRadians(x2);
         double y2r = Math.toRadians(y2);
         // Calculate great-circle distance d.
-        double d = 6359.83 * Math.acos(Math.sin(x1r) * Math.sin(x2r) +
+        return 6359.83 * Math.acos(Math.sin(x1r) * Math.sin(x2r) +
                 Math.cos(x1r) * Math.cos(x2r) * Math.cos(y1r - y2r));
-        // Write d to standard output.
-        StdOut.println(d);
     }
-}
\ No newline at end of file
+
+    // Reads quadruples from in, one per line, and writes their distances to out in input order.
+    // The input is cut into chunks at line boundaries; chunks are parsed and evaluated by a pool
+    // of workers while the calling thread keeps reading, and results are written as the oldest
+    // chunk completes. At most two chunks per worker are in flight, so memory stays bounded.
+    private static void stream(InputStream in, OutputStream out) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+        });
+        OutputStream os = new BufferedOutputStream(out, 1 << 16);
+        ArrayDeque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+        try {
+            byte[] buf = new byte[CHUNK];
+            int len = 0;
+            while (true) {
+                int r = in.read(buf, len, buf.length - len);
+                if (r < 0) {
+                    break;
+                }
+                len += r;
+                if (len < buf.length) {
+                    continue;
+                }
+
+                // Hand off everything up to the last newline, and carry the rest over.
+                int cut = lastNewline(buf, len);
+                if (cut < 0) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                    continue;
+                }
+                byte[] chunk = buf;
+                int chunkLen = cut + 1;
+                buf = new byte[Math.max(CHUNK, len - chunkLen + CHUNK / 2)];
+                System.arraycopy(chunk, chunkLen, buf, 0, len - chunkLen);
+                len -= chunkLen;
+                pending.add(pool.submit(() -> evaluate(chunk, chunkLen)));
+                while (pending.size() >= 2 * threads) {
+                    os.write(await(pending.poll()));
+                }
+            }
+            if (len > 0) {
+                byte[] chunk = buf;
+                int chunkLen = len;
+                pending.add(pool.submit(() -> evaluate(chunk, chunkLen)));
+            }
+            while (!pending.isEmpty()) {
+                os.write(await(pending.poll()));
+            }
+            os.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Returns the index of the last newline in buf[0, len), or -1.
+    private static int lastNewline(byte[] buf, int len) {
+        for (int i = len - 1; i >= 0; i--) {
+            if (buf[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Returns the result of the given task, rethrowing its failure unchecked.
+    private static byte[] await(Future<byte[]> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new UncheckedIOException(new IOException(e.getCause()));
+        }
+    }
+
+    // Parses the quadruples in buf[0, len), one per line, and returns their distances, one per
+    // line, as ASCII bytes. Blank lines are skipped.
+    private static byte[] evaluate(byte[] buf, int len) {
+        StringBuilder sb = new StringBuilder(len);
+        double[] q = new double[4];
+        int[] pos = {0};
+        while (true) {
+            skipBlanks(buf, len, pos, true);
+            if (pos[0] >= len) {
+                break;
+            }
+            for (int i = 0; i < 4; i++) {
+                skipBlanks(buf, len, pos, false);
+                q[i] = parseDouble(buf, len, pos);
+            }
+            skipBlanks(buf, len, pos, false);
+            if (pos[0] < len && buf[pos[0]] != '\n') {
+                throw new IllegalArgumentException("Expected four numbers per line");
+            }
+            sb.append(distance(q[0], q[1], q[2], q[3])).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Advances pos[0] past spaces, tabs and carriage returns, and past newlines too if
+    // newlines is true.
+    private static void skipBlanks(byte[] buf, int len, int[] pos, boolean newlines) {
+        int i = pos[0];
+        while (i < len && (buf[i] == ' ' || buf[i] == '\t' || buf[i] == '\r'
+                || newlines && buf[i] == '\n')) {
+            i++;
+        }
+        pos[0] = i;
+    }
+
+    // Parses the number that starts at buf[pos[0]] and advances pos[0] past it. Numbers with at
+    // most 15 significant digits and a small exponent are converted exactly from a long
+    // mantissa; anything else falls back to Double.parseDouble().
+    private static double parseDouble(byte[] buf, int len, int[] pos) {
+        int start = pos[0];
+        int i = start;
+        boolean negative = false;
+        if (i < len && (buf[i] == '-' || buf[i] == '+')) {
+            negative = buf[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean any = false;
+        while (i < len && buf[i] >= '0' && buf[i] <= '9') {
+            if (digits < 18) {
+                mantissa = mantissa * 10 + (buf[i] - '0');
+                digits += mantissa == 0 ? 0 : 1;
+            } else {
+                scale++;
+            }
+            any = true;
+            i++;
+        }
+        if (i < len && buf[i] == '.') {
+            i++;
+            while (i < len && buf[i] >= '0' && buf[i] <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (buf[i] - '0');
+                    digits += mantissa == 0 ? 0 : 1;
+                    scale--;
+                }
+                any = true;
+                i++;
+            }
+        }
+        boolean fast = any && digits <= 15;
+        if (i < len && (buf[i] == 'e' || buf[i] == 'E')) {
+            i++;
+            boolean negExp = false;
+            if (i < len && (buf[i] == '-' || buf[i] == '+')) {
+                negExp = buf[i] == '-';
+                i++;
+            }
+            int exp = 0;
+            boolean expDigits = false;
+            while (i < len && buf[i] >= '0' && buf[i] <= '9') {
+                exp = Math.min(exp * 10 + (buf[i] - '0'), 100000);
+                expDigits = true;
+                i++;
+            }
+            fast &= expDigits;
+            scale += negExp ? -exp : exp;
+        }
+        while (i < len && buf[i] > ' ') {
+            // Something like "NaN" or "Infinity", or garbage; let the slow path decide.
+            fast = false;
+            i++;
+        }
+        pos[0] = i;
+        if (i == start) {
+            throw new IllegalArgumentException("Expected four numbers per line");
+        }
+
+        // A mantissa below 10^15 and a power of ten up to 10^22 are both exact doubles, so one
+        // multiplication or division rounds correctly.
+        if (fast && scale >= -22 && scale <= 22) {
+            double v = scale < 0 ? mantissa / POWERS_OF_TEN[-scale]
+                    : mantissa * POWERS_OF_TEN[scale];
+            return negative ? -v : v;
+        }
+        return Double.parseDouble(new String(buf, start, i - start, StandardCharsets.US_ASCII));
+    }
+}
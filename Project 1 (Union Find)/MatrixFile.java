@@ -0,0 +1,303 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import stdlib.StdOut;
+import stdlib.StdRandom;
+
+// A library of static methods for binary matrix files, and for transposing them out of core.
+//
+// A matrix file is a 24-byte header (the magic number, the number of rows m, and the number of
+// columns n, each a little-endian long) followed by the m * n entries as little-endian doubles in
+// row-major order.
+public class MatrixFile {
+    // Header bytes "DMATRIX1", read as a little-endian long.
+    private static final long MAGIC = 0x3158495254414d44L;
+
+    // Size of the header, in bytes.
+    private static final long HEADER = 24;
+
+    // Default size of each buffered window, in bytes.
+    private static final long WINDOW = 64L << 20;
+
+    // Tile edge used when copying between the two windows.
+    private static final int TILE = 32;
+
+    // Not instantiable.
+    private MatrixFile() {
+    }
+
+    // Writes the matrix x to the file at path.
+    public static void write(DenseMatrix x, Path path) {
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeHeader(out, x.rows(), x.cols());
+            double[] a = x.data();
+            ByteBuffer buf = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            for (int k = 0; k < a.length; k++) {
+                if (!buf.hasRemaining()) {
+                    drain(out, buf);
+                }
+                buf.putDouble(a[k]);
+            }
+            drain(out, buf);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Reads the matrix in the file at path into memory.
+    public static DenseMatrix read(Path path) {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] dims = readHeader(in);
+            DenseMatrix x = new DenseMatrix(toInt(dims[0]), toInt(dims[1]));
+            double[] a = x.data();
+            ByteBuffer buf = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            int k = 0;
+            while (k < a.length) {
+                buf.clear();
+                if (in.read(buf) < 0) {
+                    throw new IllegalArgumentException("Truncated matrix file");
+                }
+                buf.flip();
+                while (buf.remaining() >= Double.BYTES && k < a.length) {
+                    a[k++] = buf.getDouble();
+                }
+                in.position(in.position() - buf.remaining());
+            }
+            return x;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Writes the transpose of the matrix file src to the matrix file dst, buffering at most two
+    // windows of the default size at a time.
+    public static void transpose(Path src, Path dst) {
+        transpose(src, dst, WINDOW);
+    }
+
+    // Writes the transpose of the matrix file src to the matrix file dst, buffering at most two
+    // windows of the given size (in bytes) at a time.
+    //
+    // The source is cut into blocks of bi rows by bj columns that fill a window, about
+    // sqrt(window) on each side (or whole rows or columns, if the matrix is narrow). Each block
+    // is read with one positional read per source row, transposed into the other window, and
+    // written with one positional write per destination row, so every byte of the source is
+    // read once and every byte of the destination is written once. The destination is produced
+    // one band of bj rows at a time, so writes move through it in order. The two windows are
+    // direct buffers allocated once and reused, so heap use does not depend on the matrix size.
+    public static void transpose(Path src, Path dst, long window) {
+        if (window < Double.BYTES || window > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Illegal window size");
+        }
+        try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(dst, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            transpose(in, out, window);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Writes the transpose of the matrix file open as in to out, as transpose(src, dst, window)
+    // does, and returns the number of bytes read from in.
+    private static long transpose(FileChannel in, FileChannel out, long window)
+            throws IOException {
+        long[] dims = readHeader(in);
+        long m = dims[0];
+        long n = dims[1];
+        if (in.size() < HEADER + m * n * Double.BYTES) {
+            throw new IllegalArgumentException("Truncated matrix file");
+        }
+        writeHeader(out, n, m);
+        long bytesRead = HEADER;
+        if (m == 0 || n == 0) {
+            return bytesRead;
+        }
+
+        // Block shape: about sqrt(w) x sqrt(w) doubles, widened to fill the window when either
+        // dimension of the matrix is shorter than that.
+        long w = window / Double.BYTES;
+        long side = Math.max(1, (long) Math.sqrt((double) w));
+        long bi = Math.min(m, side);
+        long bj = Math.min(n, Math.max(1, w / bi));
+        bi = Math.min(m, Math.max(1, w / bj));
+        int capacity = (int) (bi * bj * Double.BYTES);
+        ByteBuffer srcBuf = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer dstBuf = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        for (long j0 = 0; j0 < n; j0 += bj) {
+            long j1 = Math.min(n, j0 + bj);
+            int cols = (int) (j1 - j0);
+            for (long i0 = 0; i0 < m; i0 += bi) {
+                long i1 = Math.min(m, i0 + bi);
+                int rows = (int) (i1 - i0);
+                bytesRead += readBlock(in, srcBuf, i0 * n + j0, rows, cols, n);
+                dstBuf.clear().limit(rows * cols * Double.BYTES);
+                copyTransposed(srcBuf.asDoubleBuffer(), dstBuf.asDoubleBuffer(), rows, cols);
+                writeBlock(out, dstBuf, j0 * m + i0, cols, rows, m);
+            }
+        }
+        return bytesRead;
+    }
+
+    // Copies the rows x cols block packed row by row in s to its cols x rows transpose, packed
+    // row by row in d, tile by tile.
+    private static void copyTransposed(DoubleBuffer s, DoubleBuffer d, int rows, int cols) {
+        for (int ti = 0; ti < rows; ti += TILE) {
+            int iMax = Math.min(ti + TILE, rows);
+            for (int tj = 0; tj < cols; tj += TILE) {
+                int jMax = Math.min(tj + TILE, cols);
+                for (int i = ti; i < iMax; i++) {
+                    int from = i * cols + tj;
+                    int to = tj * rows + i;
+                    for (int j = tj; j < jMax; j++) {
+                        d.put(to, s.get(from));
+                        from++;
+                        to += rows;
+                    }
+                }
+            }
+        }
+    }
+
+    // Reads the rows x cols block of the matrix in the file (stride doubles per row) whose first
+    // entry is at flat index first into buf, packed row by row, and returns the number of bytes
+    // read. Whole rows are read with a single read.
+    private static long readBlock(FileChannel in, ByteBuffer buf, long first, int rows, int cols,
+                                  long stride) throws IOException {
+        int length = cols * Double.BYTES;
+        if (cols == stride) {
+            length *= rows;
+            rows = 1;
+        }
+        buf.clear();
+        for (int r = 0; r < rows; r++) {
+            buf.limit((r + 1) * length).position(r * length);
+            long position = HEADER + (first + r * stride) * Double.BYTES;
+            while (buf.hasRemaining()) {
+                int k = in.read(buf, position);
+                if (k < 0) {
+                    throw new IllegalArgumentException("Truncated matrix file");
+                }
+                position += k;
+            }
+        }
+        buf.flip();
+        return (long) rows * length;
+    }
+
+    // Writes the rows x cols block packed row by row in buf (up to its limit) to the matrix in
+    // the file (stride doubles per row), with its first entry at flat index first. Whole rows are
+    // written with a single write.
+    private static void writeBlock(FileChannel out, ByteBuffer buf, long first, int rows,
+                                   int cols, long stride) throws IOException {
+        if (cols == stride) {
+            write(out, buf, first);
+            return;
+        }
+        int length = cols * Double.BYTES;
+        for (int r = 0; r < rows; r++) {
+            buf.limit((r + 1) * length).position(r * length);
+            long position = HEADER + (first + r * stride) * Double.BYTES;
+            while (buf.hasRemaining()) {
+                position += out.write(buf, position);
+            }
+        }
+    }
+
+    // Writes the contents of buf (up to its limit) to the matrix in the file, starting at flat
+    // index first.
+    private static void write(FileChannel out, ByteBuffer buf, long first) throws IOException {
+        buf.position(0);
+        long position = HEADER + first * Double.BYTES;
+        while (buf.hasRemaining()) {
+            position += out.write(buf, position);
+        }
+    }
+
+    // Reads and validates the header of a matrix file, returning {m, n}.
+    private static long[] readHeader(FileChannel in) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int) HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        while (buf.hasRemaining()) {
+            if (in.read(buf) < 0) {
+                throw new IllegalArgumentException("Truncated matrix header");
+            }
+        }
+        buf.flip();
+        if (buf.getLong() != MAGIC) {
+            throw new IllegalArgumentException("Not a matrix file");
+        }
+        long m = buf.getLong();
+        long n = buf.getLong();
+        if (m < 0 || n < 0 || m > 0 && n > Long.MAX_VALUE / Double.BYTES / m) {
+            throw new IllegalArgumentException("Illegal matrix dimensions");
+        }
+        return new long[]{m, n};
+    }
+
+    // Writes the header of an m x n matrix file.
+    private static void writeHeader(FileChannel out, long m, long n) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int) HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putLong(MAGIC).putLong(m).putLong(n);
+        drain(out, buf);
+    }
+
+    // Writes out the contents of buf and clears it.
+    private static void drain(FileChannel out, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+        buf.clear();
+    }
+
+    // Returns x as an int, or throws if it does not fit in memory as an array dimension.
+    private static int toInt(long x) {
+        if (x > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Matrix too large to read into memory");
+        }
+        return (int) x;
+    }
+
+    // Unit tests the library.
+    public static void main(String[] args) throws IOException {
+        int m = Integer.parseInt(args[0]);
+        int n = Integer.parseInt(args[1]);
+        long window = Long.parseLong(args[2]);
+        DenseMatrix x = new DenseMatrix(m, n);
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                x.set(i, j, StdRandom.uniform());
+            }
+        }
+        Path src = Files.createTempFile("matrix", ".bin");
+        Path dst = Files.createTempFile("transpose", ".bin");
+        try {
+            write(x, src);
+            StdOut.println("read(write(x)) == x? " + read(src).equals(x));
+            long start = System.nanoTime();
+            long bytesRead;
+            try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(dst, StandardOpenOption.WRITE,
+                         StandardOpenOption.TRUNCATE_EXISTING)) {
+                bytesRead = transpose(in, out, window);
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            StdOut.printf("transpose(src, dst, %d): %.3f s, correct? %s\n", window, elapsed,
+                    read(dst).equals(x.transpose()));
+
+            // Every byte of the source must be read exactly once, whatever the window.
+            StdOut.println("read the source once? " + (bytesRead == Files.size(src)));
+        } finally {
+            Files.deleteIfExists(src);
+            Files.deleteIfExists(dst);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import stdlib.StdOut;
+import stdlib.StdRandom;
+
+// A data type to represent a double-ended queue (aka deque) of char values, implemented using a
+// circular resizing char[] as the underlying data structure. It has the same API as
+// LinkedDeque<Character>, but stores each value in 2 bytes instead of a node and a boxed Character.
+public class CharDeque implements Iterable<Character> {
+    private static final int MIN_CAPACITY = 8; // smallest capacity of the array
+
+    private char[] q; // array to store the values
+    private int head; // index of the front value
+    private int n;    // size of the deque
+
+    // Constructs an empty deque.
+    public CharDeque() {
+        q = new char[MIN_CAPACITY];
+        head = 0;
+        n = 0;
+    }
+
+    // Constructs a deque holding the values of a, front to back.
+    public CharDeque(char[] a) {
+        this();
+        addAllLast(a);
+    }
+
+    // Returns true if this deque is empty, and false otherwise.
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    // Returns the number of values in this deque.
+    public int size() {
+        return n;
+    }
+
+    // Adds x to the front of this deque.
+    public void addFirst(char x) {
+        if (n == q.length) {
+            resize(DequeSupport.grow(q.length, n + 1L));
+        }
+        head = (head - 1) & (q.length - 1);
+        q[head] = x;
+        n++;
+    }
+
+    // Adds x to the back of this deque.
+    public void addLast(char x) {
+        if (n == q.length) {
+            resize(DequeSupport.grow(q.length, n + 1L));
+        }
+        q[(head + n) & (q.length - 1)] = x;
+        n++;
+    }
+
+    // Adds the values of a to the back of this deque, in order.
+    public void addAllLast(char[] a) {
+        int capacity = DequeSupport.grow(q.length, (long) n + a.length);
+        if (capacity != q.length) {
+            resize(capacity);
+        }
+        int tail = (head + n) & (q.length - 1);
+        int toEnd = Math.min(a.length, q.length - tail);
+        System.arraycopy(a, 0, q, tail, toEnd);
+        System.arraycopy(a, toEnd, q, 0, a.length - toEnd);
+        n += a.length;
+    }
+
+    // Returns the value at the front of this deque.
+    public char peekFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        return q[head];
+    }
+
+    // Removes and returns the value at the front of this deque.
+    public char removeFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        char x = q[head];
+        head = (head + 1) & (q.length - 1);
+        n--;
+        shrinkIfSparse();
+        return x;
+    }
+
+    // Returns the value at the back of this deque.
+    public char peekLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        return q[(head + n - 1) & (q.length - 1)];
+    }
+
+    // Removes and returns the value at the back of this deque.
+    public char removeLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        char x = q[(head + n - 1) & (q.length - 1)];
+        n--;
+        shrinkIfSparse();
+        return x;
+    }
+
+    // Returns the value at position i from the front of this deque.
+    public char get(int i) {
+        if (i < 0 || i >= n) {
+            throw new IndexOutOfBoundsException("Illegal index " + i);
+        }
+        return q[(head + i) & (q.length - 1)];
+    }
+
+    // Returns the values in this deque as a new array, front to back.
+    public char[] toArray() {
+        char[] a = new char[n];
+        int toEnd = Math.min(n, q.length - head);
+        System.arraycopy(q, head, a, 0, toEnd);
+        System.arraycopy(q, 0, a, toEnd, n - toEnd);
+        return a;
+    }
+
+    // Returns an iterator to iterate over the values in this deque from front to back. Call
+    // nextChar() rather than next() to avoid boxing.
+    public CharIterator iterator() {
+        return new DequeIterator();
+    }
+
+    // Returns a string representation of this deque.
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    // An iterator over char values.
+    public interface CharIterator extends Iterator<Character> {
+        // Returns the next value, without boxing it.
+        char nextChar();
+
+        // Returns the next value, boxed.
+        default Character next() {
+            return nextChar();
+        }
+    }
+
+    // A deque iterator.
+    private class DequeIterator implements CharIterator {
+        private int i; // position of the next value, counted from the front
+
+        // Returns true if there are more values to iterate, and false otherwise.
+        public boolean hasNext() {
+            return i < n;
+        }
+
+        // Returns the next value.
+        public char nextChar() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("Iterator is empty");
+            }
+            return q[(head + i++) & (q.length - 1)];
+        }
+    }
+
+    // Halves the array if the deque is a quarter full.
+    private void shrinkIfSparse() {
+        if (q.length > MIN_CAPACITY && n <= q.length / 4) {
+            resize(q.length / 2);
+        }
+    }
+
+    // Resizes the underlying array, moving the front value to index 0.
+    private void resize(int capacity) {
+        char[] temp = new char[capacity];
+        int toEnd = Math.min(n, q.length - head);
+        System.arraycopy(q, head, temp, 0, toEnd);
+        System.arraycopy(q, 0, temp, toEnd, n - toEnd);
+        q = temp;
+        head = 0;
+    }
+
+    // Unit tests the data type.
+    public static void main(String[] args) {
+        CharDeque deque = new CharDeque();
+        String quote = "There is grandeur in this view of life, with its several powers, having " +
+                "been originally breathed into a few forms or into one; and that, whilst this " +
+                "planet has gone cycling on according to the fixed law of gravity, from so simple" +
+                " a beginning endless forms most beautiful and most wonderful have been, and are " +
+                "being, evolved. ~ Charles Darwin, The Origin of Species";
+        int r = StdRandom.uniform(0, quote.length());
+        StdOut.println("Filling the deque...");
+        for (int i = r - 1; i >= 0; i--) {
+            deque.addFirst(quote.charAt(i));
+        }
+        deque.addAllLast(quote.substring(r).toCharArray());
+        StdOut.printf("The deque (%d characters): ", deque.size());
+        CharIterator it = deque.iterator();
+        while (it.hasNext()) {
+            StdOut.print(it.nextChar());
+        }
+        StdOut.println();
+        StdOut.println("toArray() gives back the quote? "
+                + new String(deque.toArray()).equals(quote));
+        StdOut.println("Emptying the deque...");
+        double s = StdRandom.uniform();
+        for (int i = 0; i < quote.length(); i++) {
+            if (StdRandom.bernoulli(s)) {
+                deque.removeFirst();
+            } else {
+                deque.removeLast();
+            }
+        }
+        StdOut.println("deque.isEmpty()? " + deque.isEmpty());
+    }
+}
@@ -0,0 +1,325 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import stdlib.StdOut;
+
+// A data type to represent a random queue that any number of threads may use at once. Items are
+// striped across segments, one per enqueueing thread, each a resizing array with its own lock,
+// so producers do not contend with one another.
+//
+// Uniformity: dequeue() and sample() read the size of every segment, pick segment i with
+// probability size(i) / total, lock it, and then pick a slot uniformly among the items it holds
+// at that moment. With no concurrent updates, every item is therefore equally likely, exactly as
+// in ResizingArrayRandomQueue. Under concurrent updates the segment is chosen from sizes that may
+// be slightly stale, so an item's probability is off by at most the relative change in its
+// segment's size during the call; no item is ever starved.
+//
+// Segments are never removed, so items enqueued by a thread that has since died stay reachable.
+public class ConcurrentRandomQueue<Item> implements Iterable<Item> {
+    private volatile Segment[] segments; // all the segments
+    private ThreadLocal<Segment> home;   // the calling thread's segment
+
+    // Constructs an empty random queue.
+    public ConcurrentRandomQueue() {
+        segments = new Segment[0];
+        home = ThreadLocal.withInitial(this::register);
+    }
+
+    // Returns true if this queue appears empty, and false otherwise.
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // Returns the number of items in this queue, as seen at some recent moment.
+    public int size() {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.size;
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    // Adds item to this queue, in the calling thread's segment.
+    public void enqueue(Item item) {
+        if (item == null) {
+            throw new NullPointerException("item is null");
+        }
+        home.get().add(item);
+    }
+
+    // Returns a random item from this queue.
+    public Item sample() {
+        return pick(false);
+    }
+
+    // Removes and returns a random item from this queue.
+    public Item dequeue() {
+        return pick(true);
+    }
+
+    // Returns an independent iterator over a snapshot of the items in this queue, in random
+    // order. Each segment is copied atomically, but the segments are copied one after another.
+    public Iterator<Item> iterator() {
+        return new RandomQueueIterator();
+    }
+
+    // Returns a string representation of this queue.
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Item item : this) {
+            sb.append(item);
+            sb.append(", ");
+        }
+        return sb.length() > 0 ? "[" + sb.substring(0, sb.length() - 2) + "]" : "[]";
+    }
+
+    // Returns a random item, removing it if remove is true.
+    @SuppressWarnings("unchecked")
+    private Item pick(boolean remove) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true) {
+            Segment[] all = segments;
+            long total = 0;
+            for (Segment segment : all) {
+                total += segment.size;
+            }
+            if (total == 0) {
+                throw new NoSuchElementException("Random queue is empty");
+            }
+            long r = random.nextLong(total);
+            Segment chosen = all[all.length - 1];
+            for (Segment segment : all) {
+                r -= segment.size;
+                if (r < 0) {
+                    chosen = segment;
+                    break;
+                }
+            }
+            Object item = chosen.take(random, remove);
+            if (item != null) {
+                return (Item) item;
+            }
+            // The segment emptied since its size was read; try again.
+        }
+    }
+
+    // Creates, registers and returns a segment for the calling thread.
+    private synchronized Segment register() {
+        Segment segment = new Segment();
+        Segment[] bigger = new Segment[segments.length + 1];
+        System.arraycopy(segments, 0, bigger, 0, segments.length);
+        bigger[segments.length] = segment;
+        segments = bigger;
+        return segment;
+    }
+
+    // A data type to represent a segment: a resizing array guarded by its own lock.
+    private static class Segment {
+        private Object[] items = new Object[2]; // the items
+        private volatile int size;              // number of items, readable without the lock
+
+        // Adds item to this segment.
+        synchronized void add(Object item) {
+            if (size == items.length) {
+                resize(2 * size);
+            }
+            items[size] = item;
+            size = size + 1;
+        }
+
+        // Returns a random item of this segment, removing it if remove is true, or returns null
+        // if the segment is empty.
+        synchronized Object take(ThreadLocalRandom random, boolean remove) {
+            int n = size;
+            if (n == 0) {
+                return null;
+            }
+            int r = random.nextInt(n);
+            Object item = items[r];
+            if (remove) {
+                items[r] = items[n - 1];
+                items[n - 1] = null;
+                size = n - 1;
+                if (n - 1 > 0 && n - 1 == items.length / 4) {
+                    resize(items.length / 2);
+                }
+            }
+            return item;
+        }
+
+        // Returns a copy of the items of this segment.
+        synchronized Object[] copy() {
+            Object[] a = new Object[size];
+            System.arraycopy(items, 0, a, 0, size);
+            return a;
+        }
+
+        // Resizes the underlying array.
+        private void resize(int max) {
+            Object[] temp = new Object[max];
+            System.arraycopy(items, 0, temp, 0, size);
+            items = temp;
+        }
+    }
+
+    // An iterator, doesn't implement remove() since it's optional.
+    private class RandomQueueIterator implements Iterator<Item> {
+        private Object[] items; // snapshot of the items
+        private int current;    // index of the current item
+
+        // Constructs an iterator.
+        public RandomQueueIterator() {
+            Segment[] all = segments;
+            Object[][] copies = new Object[all.length][];
+            int n = 0;
+            for (int i = 0; i < all.length; i++) {
+                copies[i] = all[i].copy();
+                n += copies[i].length;
+            }
+            items = new Object[n];
+            int k = 0;
+            for (Object[] copy : copies) {
+                System.arraycopy(copy, 0, items, k, copy.length);
+                k += copy.length;
+            }
+            current = 0;
+        }
+
+        // Returns true if there are more items to iterate, and false otherwise.
+        public boolean hasNext() {
+            return current < items.length;
+        }
+
+        // Returns the next item, swapping a random remaining item into place first.
+        @SuppressWarnings("unchecked")
+        public Item next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("Iterator is empty");
+            }
+            int r = current + ThreadLocalRandom.current().nextInt(items.length - current);
+            Object item = items[r];
+            items[r] = items[current];
+            items[current] = item;
+            current++;
+            return (Item) item;
+        }
+    }
+
+    // Unit tests the data type. First checks that dequeue() is uniform over items spread
+    // unevenly across segments; then runs producers and consumers against this queue and
+    // against a ResizingArrayRandomQueue behind a lock, checking that every item comes out once.
+    public static void main(String[] args) throws InterruptedException {
+        int producers = Integer.parseInt(args[0]);
+        int consumers = Integer.parseInt(args[1]);
+        int n = Integer.parseInt(args[2]);
+
+        // Item i is in segment i % 3, but the segments hold 1, 10 and 100 items.
+        int trials = 300000;
+        int[] counts = new int[3];
+        for (int t = 0; t < trials / 111; t++) {
+            ConcurrentRandomQueue<Integer> q = new ConcurrentRandomQueue<Integer>();
+            Thread[] threads = new Thread[3];
+            for (int s = 0; s < 3; s++) {
+                final int seg = s;
+                threads[s] = new Thread(() -> {
+                    for (int i = 0; i < (int) Math.pow(10, seg); i++) {
+                        q.enqueue(seg);
+                    }
+                });
+                threads[s].start();
+                threads[s].join();
+            }
+            counts[q.dequeue()]++;
+        }
+        StdOut.printf("first dequeue per segment: %.3f %.3f %.3f (expected %.3f %.3f %.3f)\n",
+                counts[0] / (trials / 111.0), counts[1] / (trials / 111.0),
+                counts[2] / (trials / 111.0), 1 / 111.0, 10 / 111.0, 100 / 111.0);
+
+        for (int round = 0; round < 3; round++) {
+            benchmark("concurrent queue     ", producers, consumers, n, false);
+            benchmark("locked random queue  ", producers, consumers, n, true);
+        }
+    }
+
+    // Runs one benchmark round and reports its throughput and whether every item came out once.
+    @SuppressWarnings("unchecked")
+    private static void benchmark(String name, int producers, int consumers, int n,
+                                  boolean locked) throws InterruptedException {
+        Object queue = locked ? new ResizingArrayRandomQueue<Integer>()
+                : new ConcurrentRandomQueue<Integer>();
+        AtomicLong taken = new AtomicLong();
+        AtomicLong sum = new AtomicLong();
+        long total = (long) producers * n;
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers + consumers];
+        for (int p = 0; p < producers; p++) {
+            final int base = p * n;
+            threads[p] = new Thread(() -> {
+                await(start);
+                for (int i = 1; i <= n; i++) {
+                    if (locked) {
+                        synchronized (queue) {
+                            ((ResizingArrayRandomQueue<Integer>) queue).enqueue(base + i);
+                        }
+                    } else {
+                        ((ConcurrentRandomQueue<Integer>) queue).enqueue(base + i);
+                    }
+                }
+            });
+        }
+        for (int c = 0; c < consumers; c++) {
+            threads[producers + c] = new Thread(() -> {
+                await(start);
+                long local = 0;
+                while (taken.get() < total) {
+                    Integer item = null;
+                    if (locked) {
+                        synchronized (queue) {
+                            ResizingArrayRandomQueue<Integer> q =
+                                    (ResizingArrayRandomQueue<Integer>) queue;
+                            if (!q.isEmpty()) {
+                                item = q.dequeue();
+                            }
+                        }
+                    } else {
+                        try {
+                            item = ((ConcurrentRandomQueue<Integer>) queue).dequeue();
+                        } catch (NoSuchElementException e) {
+                            item = null;
+                        }
+                    }
+                    if (item == null) {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    local += item;
+                    taken.incrementAndGet();
+                }
+                sum.addAndGet(local);
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+        StdOut.printf("%s: %.1f Mitems/s, every item came out once? %b\n", name,
+                total / elapsed / 1e6, sum.get() == total * (total + 1) / 2);
+    }
+
+    // Waits for the latch, ignoring interrupts.
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
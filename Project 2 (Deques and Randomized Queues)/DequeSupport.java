@@ -0,0 +1,45 @@
+import stdlib.StdOut;
+
+// A library of the capacity arithmetic shared by the ring-buffer deques (ResizingArrayDeque,
+// IntDeque, LongDeque and CharDeque), whose arrays are always a power of two long so that
+// positions wrap around with a bit mask.
+class DequeSupport {
+    // Largest capacity of a deque's array: the largest power of two that is a legal array length,
+    // so head + i never overflows for positions i within the deque.
+    static final int MAX_CAPACITY = 1 << 30;
+
+    // Not instantiable.
+    private DequeSupport() {
+    }
+
+    // Returns the smallest power of two that is at least capacity (a power of two) and at least
+    // needed, or throws IllegalStateException if needed is more than MAX_CAPACITY. The arithmetic
+    // is done in long, so neither doubling nor the caller's sum can overflow.
+    static int grow(int capacity, long needed) {
+        if (needed > MAX_CAPACITY) {
+            throw new IllegalStateException("Deque is full");
+        }
+        long c = capacity;
+        while (c < needed) {
+            c *= 2;
+        }
+        return (int) c;
+    }
+
+    // Unit tests the library.
+    public static void main(String[] args) {
+        StdOut.println("grow(8, 8) = " + grow(8, 8));
+        StdOut.println("grow(8, 9) = " + grow(8, 9));
+        StdOut.println("grow(8, 1000) = " + grow(8, 1000));
+        StdOut.println("grow(2^29, 2^30) == 2^30? " + (grow(1 << 29, 1 << 30) == MAX_CAPACITY));
+        long[] tooMany = {MAX_CAPACITY + 1L, Integer.MAX_VALUE + 1L, (long) Integer.MAX_VALUE * 2};
+        for (long needed : tooMany) {
+            try {
+                grow(1 << 30, needed);
+                StdOut.println("grow(2^30, " + needed + ") did not throw");
+            } catch (IllegalStateException e) {
+                StdOut.println("grow(2^30, " + needed + ") throws: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,391 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import stdlib.StdOut;
+
+// A library for sorting whitespace-separated words that may not fit in memory, in the order of
+// String.compareTo(). Words are read into runs of bounded size, each run is sorted (in parallel,
+// with StringSort) and spilled to a temporary file, and the runs are then merged with a loser
+// tree, writing the output as it goes. Input that fits in a single run is never spilled.
+//
+// A run file is a sequence of records, each the UTF-8 length of a word as an unsigned LEB128
+// varint followed by the word's UTF-8 bytes.
+public class ExternalSort {
+    // Default memory budget for a run, in bytes.
+    public static final long DEFAULT_MEMORY = 256L << 20;
+
+    // Largest number of runs merged at once; more runs are merged in several passes.
+    private static final int FAN_IN = 256;
+
+    // Estimated heap bytes of a word beyond its characters: the String, its array header and
+    // its reference in the run (56), plus what StringSort allocates per word while sorting the
+    // run, its start, length and permutation entries and its reference in the sorted copy (20).
+    private static final int WORD_OVERHEAD = 76;
+
+    // Size of the I/O buffers, in bytes.
+    private static final int BUFFER = 1 << 16;
+
+    // Not instantiable.
+    private ExternalSort() {
+    }
+
+    // Reads whitespace-separated words from in and writes them to out in sorted order, one per
+    // line, using about memory bytes of heap for a run of words and the sorting of it. Temporary
+    // files go to tempDir, or to the default temporary directory if tempDir is null.
+    public static void sort(Reader in, Writer out, long memory, Path tempDir) throws IOException {
+        if (memory <= 0) {
+            throw new IllegalArgumentException("Illegal memory budget");
+        }
+        WordReader words = new WordReader(in);
+        ArrayList<Path> runs = new ArrayList<Path>();
+        try {
+            String[] run = new String[1024];
+            while (true) {
+                int n = 0;
+                long used = 0;
+                String w;
+                while (used < memory && (w = words.next()) != null) {
+                    if (n == run.length) {
+                        run = Arrays.copyOf(run, 2 * n);
+                    }
+                    run[n++] = w;
+                    // The characters are held twice: in the word, and in StringSort's arena.
+                    used += WORD_OVERHEAD + 4L * w.length();
+                }
+                StringSort.sort(run, 0, n);
+                boolean last = used < memory;
+                if (last && runs.isEmpty()) {
+                    // Everything fit in memory.
+                    BufferedWriter writer = new BufferedWriter(out, BUFFER);
+                    for (int i = 0; i < n; i++) {
+                        writer.write(run[i]);
+                        writer.write('\n');
+                    }
+                    writer.flush();
+                    return;
+                }
+                if (n > 0) {
+                    runs.add(spill(run, n, tempDir));
+                }
+                Arrays.fill(run, 0, n, null);
+                if (last) {
+                    break;
+                }
+            }
+            while (runs.size() > FAN_IN) {
+                // The group stays in runs, and the merged run joins it at once, so the finally
+                // block deletes them all if the merge fails.
+                ArrayList<Path> group = new ArrayList<Path>(runs.subList(0, FAN_IN));
+                Path merged = createRun(tempDir);
+                runs.add(merged);
+                try (OutputStream file = Files.newOutputStream(merged)) {
+                    RunWriter writer = new RunWriter(file);
+                    merge(group, writer);
+                    writer.flush();
+                }
+                runs.subList(0, FAN_IN).clear();
+                delete(group);
+            }
+            BufferedWriter writer = new BufferedWriter(out, BUFFER);
+            merge(runs, new Sink() {
+                public void write(String word) throws IOException {
+                    writer.write(word);
+                    writer.write('\n');
+                }
+            });
+            writer.flush();
+        } finally {
+            delete(runs);
+        }
+    }
+
+    // Writes run[0, n) to a new temporary run file, and returns the file.
+    private static Path spill(String[] run, int n, Path tempDir) throws IOException {
+        Path path = createRun(tempDir);
+        try (OutputStream file = Files.newOutputStream(path)) {
+            RunWriter writer = new RunWriter(file);
+            for (int i = 0; i < n; i++) {
+                writer.write(run[i]);
+            }
+            writer.flush();
+        }
+        return path;
+    }
+
+    // Creates and returns an empty temporary run file in tempDir, or in the default temporary
+    // directory if tempDir is null.
+    private static Path createRun(Path tempDir) throws IOException {
+        if (tempDir == null) {
+            return Files.createTempFile("sort", ".run");
+        }
+        return Files.createTempFile(tempDir, "sort", ".run");
+    }
+
+    // Merges the sorted run files into sink, using a loser tree: each internal node remembers the
+    // loser of the match played there, so replacing the winner replays only the matches on its
+    // path to the root, about lg k comparisons per word.
+    private static void merge(ArrayList<Path> paths, Sink sink) throws IOException {
+        int k = paths.size();
+        RunReader[] readers = new RunReader[k];
+        try {
+            String[] heads = new String[k];
+            for (int i = 0; i < k; i++) {
+                readers[i] = new RunReader(Files.newInputStream(paths.get(i)));
+                heads[i] = readers[i].next();
+            }
+            int[] tree = new int[Math.max(1, k)];
+            if (k == 0) {
+                return;
+            }
+            int winner = build(tree, heads, 1, k);
+            while (heads[winner] != null) {
+                sink.write(heads[winner]);
+                heads[winner] = readers[winner].next();
+                for (int node = (winner + k) / 2; node >= 1; node /= 2) {
+                    if (less(heads, tree[node], winner)) {
+                        int t = tree[node];
+                        tree[node] = winner;
+                        winner = t;
+                    }
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                if (reader != null) {
+                    reader.close();
+                }
+            }
+        }
+    }
+
+    // Plays the matches below node of a loser tree over k leaves (leaf i is node k + i),
+    // records the losers in tree, and returns the winner.
+    private static int build(int[] tree, String[] heads, int node, int k) {
+        if (node >= k) {
+            return node - k;
+        }
+        int a = build(tree, heads, 2 * node, k);
+        int b = build(tree, heads, 2 * node + 1, k);
+        if (less(heads, b, a)) {
+            tree[node] = a;
+            return b;
+        }
+        tree[node] = b;
+        return a;
+    }
+
+    // Returns true if run a's head comes before run b's, an exhausted run coming last.
+    private static boolean less(String[] heads, int a, int b) {
+        if (heads[a] == null) {
+            return false;
+        }
+        if (heads[b] == null) {
+            return true;
+        }
+        int cmp = heads[a].compareTo(heads[b]);
+        return cmp < 0 || cmp == 0 && a < b;
+    }
+
+    // Deletes the given temporary files, ignoring failures.
+    private static void delete(ArrayList<Path> paths) {
+        for (Path path : paths) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // Nothing more can be done.
+            }
+        }
+    }
+
+    // A destination for merged words.
+    private interface Sink {
+        // Writes word.
+        void write(String word) throws IOException;
+    }
+
+    // A writer of run files.
+    private static class RunWriter implements Sink {
+        private DataOutputStream out; // the output
+
+        // Constructs a writer on out.
+        RunWriter(OutputStream out) {
+            this.out = new DataOutputStream(new BufferedOutputStream(out, BUFFER));
+        }
+
+        // Writes word as a length-prefixed record.
+        public void write(String word) throws IOException {
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            int len = bytes.length;
+            while (len >= 0x80) {
+                out.write(len & 0x7f | 0x80);
+                len >>>= 7;
+            }
+            out.write(len);
+            out.write(bytes);
+        }
+
+        // Flushes the buffered records.
+        void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    // A reader of run files.
+    private static class RunReader {
+        private DataInputStream in; // the input
+        private byte[] bytes;       // buffer for a word's bytes
+
+        // Constructs a reader on in.
+        RunReader(InputStream in) {
+            this.in = new DataInputStream(new BufferedInputStream(in, BUFFER));
+            bytes = new byte[64];
+        }
+
+        // Returns the next word, or null at the end of the run.
+        String next() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                return null;
+            }
+            int len = 0;
+            int shift = 0;
+            while ((b & 0x80) != 0) {
+                len |= (b & 0x7f) << shift;
+                shift += 7;
+                b = in.read();
+                if (b < 0) {
+                    throw new EOFException("Truncated run file");
+                }
+            }
+            len |= b << shift;
+            if (len > bytes.length) {
+                bytes = new byte[Math.max(len, 2 * bytes.length)];
+            }
+            in.readFully(bytes, 0, len);
+            return new String(bytes, 0, len, StandardCharsets.UTF_8);
+        }
+
+        // Closes the run file.
+        void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // A reader of whitespace-separated words (as by Character.isWhitespace(), like StdIn).
+    private static class WordReader {
+        private Reader in;         // the input
+        private char[] buffer;     // buffered characters
+        private int pos;           // position of the next character in buffer
+        private int end;           // number of characters in buffer
+        private StringBuilder sb;  // the word being read
+
+        // Constructs a reader on in.
+        WordReader(Reader in) {
+            this.in = in;
+            buffer = new char[BUFFER];
+            sb = new StringBuilder();
+        }
+
+        // Returns the next word, or null at the end of the input.
+        String next() throws IOException {
+            // Skip whitespace.
+            while (true) {
+                if (pos == end && !fill()) {
+                    return null;
+                }
+                if (!Character.isWhitespace(buffer[pos])) {
+                    break;
+                }
+                pos++;
+            }
+
+            // Read up to the next whitespace.
+            int start = pos;
+            sb.setLength(0);
+            while (true) {
+                if (pos == end) {
+                    sb.append(buffer, start, pos - start);
+                    if (!fill()) {
+                        return sb.toString();
+                    }
+                    start = 0;
+                }
+                if (Character.isWhitespace(buffer[pos])) {
+                    if (sb.length() == 0) {
+                        return new String(buffer, start, pos - start);
+                    }
+                    sb.append(buffer, start, pos - start);
+                    return sb.toString();
+                }
+                pos++;
+            }
+        }
+
+        // Refills the buffer, and returns false at the end of the input.
+        private boolean fill() throws IOException {
+            end = in.read(buffer);
+            pos = 0;
+            if (end <= 0) {
+                end = 0;
+                return false;
+            }
+            return true;
+        }
+    }
+
+    // Unit tests the library on n random words, with a memory budget small enough to force
+    // spilling and (for large n) more than one merge pass.
+    public static void main(String[] args) throws IOException {
+        int n = Integer.parseInt(args[0]);
+        SplittableRandom random = new SplittableRandom(210);
+        String[] words = new String[n];
+        String[] extra = {"\u00e9", "\u4e2d", "\ud83d\ude00", "\uff5a"}; // non-ASCII letters
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            int len = 1 + random.nextInt(12);
+            StringBuilder w = new StringBuilder();
+            for (int j = 0; j < len; j++) {
+                int r = random.nextInt(40);
+                if (r < 26) {
+                    w.append((char) ('a' + r));
+                } else if (r < 36) {
+                    w.append((char) ('A' + r - 26));
+                } else {
+                    w.append(extra[r - 36]);
+                }
+            }
+            words[i] = w.toString();
+            input.append(words[i]).append(i % 7 == 0 ? "\n" : " \t ");
+        }
+        long memory = Math.max(1024, (long) n * 100 / 300);
+        StringWriter output = new StringWriter();
+        long start = System.nanoTime();
+        sort(new StringReader(input.toString()), output, memory, null);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(words);
+        StringBuilder expected = new StringBuilder();
+        for (String w : words) {
+            expected.append(w).append('\n');
+        }
+        StdOut.printf("sorted %d words in about %d runs in %.2f s\n", n,
+                (long) n * 100 / memory + 1, elapsed);
+        StdOut.println("same as Arrays.sort()? " + output.toString().equals(expected.toString()));
+    }
+}
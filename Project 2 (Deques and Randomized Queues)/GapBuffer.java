@@ -0,0 +1,204 @@
+import java.util.NoSuchElementException;
+
+import stdlib.StdOut;
+import stdlib.StdRandom;
+
+// A data type to represent a text editor buffer, implemented using a gap buffer: a char[] holding
+// the characters left of the cursor at its start and those right of the cursor at its end, with
+// the free space (the gap) in between. Inserting and deleting at the cursor take constant time,
+// and moving the cursor k positions moves k characters across the gap with one arraycopy.
+public class GapBuffer {
+    private static final int MIN_CAPACITY = 16; // smallest capacity of the array
+
+    private char[] buf;   // the characters, with the gap at [gapStart, gapEnd)
+    private int gapStart; // number of characters left of the cursor
+    private int gapEnd;   // index of the first character right of the cursor
+
+    // Creates an empty buffer.
+    public GapBuffer() {
+        buf = new char[MIN_CAPACITY];
+        gapStart = 0;
+        gapEnd = buf.length;
+    }
+
+    // Inserts c at the cursor position.
+    public void insert(char c) {
+        if (gapStart == gapEnd) {
+            grow(1);
+        }
+        buf[gapStart++] = c;
+    }
+
+    // Inserts the characters of s at the cursor position, leaving the cursor after them.
+    public void insert(CharSequence s) {
+        int len = s.length();
+        if (gapEnd - gapStart < len) {
+            grow(len);
+        }
+        if (s instanceof String) {
+            ((String) s).getChars(0, len, buf, gapStart);
+        } else {
+            for (int i = 0; i < len; i++) {
+                buf[gapStart + i] = s.charAt(i);
+            }
+        }
+        gapStart += len;
+    }
+
+    // Deletes and returns the character immediately ahead of the cursor.
+    public char delete() {
+        if (gapEnd == buf.length) {
+            throw new NoSuchElementException("Nothing ahead of the cursor");
+        }
+        return buf[gapEnd++];
+    }
+
+    // Deletes and returns the k characters immediately ahead of the cursor.
+    public String delete(int k) {
+        if (k < 0 || k > buf.length - gapEnd) {
+            throw new NoSuchElementException("Cannot delete " + k + " characters");
+        }
+        String deleted = new String(buf, gapEnd, k);
+        gapEnd += k;
+        return deleted;
+    }
+
+    // Moves the cursor k positions to the left.
+    public void left(int k) {
+        if (k < 0 || k > gapStart) {
+            throw new NoSuchElementException("Cannot move the cursor " + k + " to the left");
+        }
+        System.arraycopy(buf, gapStart - k, buf, gapEnd - k, k);
+        gapStart -= k;
+        gapEnd -= k;
+    }
+
+    // Moves the cursor k positions to the right.
+    public void right(int k) {
+        if (k < 0 || k > buf.length - gapEnd) {
+            throw new NoSuchElementException("Cannot move the cursor " + k + " to the right");
+        }
+        System.arraycopy(buf, gapEnd, buf, gapStart, k);
+        gapStart += k;
+        gapEnd += k;
+    }
+
+    // Returns the number of characters in this buffer.
+    public int size() {
+        return gapStart + buf.length - gapEnd;
+    }
+
+    // Returns the position of the cursor (the number of characters left of it).
+    public int cursor() {
+        return gapStart;
+    }
+
+    // Returns the characters at positions [from, to) of this buffer.
+    public String substring(int from, int to) {
+        if (from < 0 || to > size() || from > to) {
+            throw new IndexOutOfBoundsException("Illegal range [" + from + ", " + to + ")");
+        }
+        StringBuilder sb = new StringBuilder(to - from);
+        if (from < gapStart) {
+            sb.append(buf, from, Math.min(to, gapStart) - from);
+        }
+        if (to > gapStart) {
+            int start = Math.max(from, gapStart);
+            sb.append(buf, gapEnd + start - gapStart, to - start);
+        }
+        return sb.toString();
+    }
+
+    // Returns a string representation of the buffer with the "|" character (not part of the
+    // buffer) at the cursor position.
+    public String toString() {
+        StringBuilder sb = new StringBuilder(size() + 1);
+        sb.append(buf, 0, gapStart);
+        sb.append('|');
+        sb.append(buf, gapEnd, buf.length - gapEnd);
+        return sb.toString();
+    }
+
+    // Makes room for at least n more characters, at least doubling the array.
+    private void grow(int n) {
+        int size = size();
+        int capacity = Math.max(buf.length * 2, size + n);
+        char[] temp = new char[capacity];
+        int after = buf.length - gapEnd;
+        System.arraycopy(buf, 0, temp, 0, gapStart);
+        System.arraycopy(buf, gapEnd, temp, capacity - after, after);
+        buf = temp;
+        gapEnd = capacity - after;
+    }
+
+    // Unit tests the data type.
+    public static void main(String[] args) {
+        GapBuffer buf = new GapBuffer();
+        String s = "There is grandeur in this view of life, with its several powers, having been " +
+                "originally breathed into a few forms or into one; and that, whilst this planet " +
+                "has gone cycling on according to the fixed law of gravity, from so simple a " +
+                "beginning endless forms most beautiful and most wonderful have been, and are " +
+                "being, evolved. ~ Charles Darwin, The Origin of Species";
+        for (int i = 0; i < s.length(); i++) {
+            buf.insert(s.charAt(i));
+        }
+        buf.left(buf.size());
+        buf.right(97);
+        s = "by the Creator ";
+        for (int i = 0; i < s.length(); i++) {
+            buf.insert(s.charAt(i));
+        }
+        buf.right(228);
+        buf.delete();
+        buf.insert('-');
+        buf.insert('-');
+        buf.left(342);
+        StdOut.println(buf);
+
+        // Make random edits to a gap buffer and to a Buffer, and check that they agree.
+        GapBuffer gap = new GapBuffer();
+        Buffer model = new Buffer();
+        boolean agree = true;
+        for (int t = 0; t < 20000; t++) {
+            int op = StdRandom.uniform(10);
+            if (op < 6) {
+                char c = (char) ('a' + StdRandom.uniform(26));
+                gap.insert(c);
+                model.insert(c);
+            } else if (op < 7) {
+                if (gap.cursor() < gap.size()) {
+                    agree &= gap.delete() == model.delete();
+                }
+            } else if (op < 8) {
+                int k = StdRandom.uniform(Math.min(gap.cursor(), 100) + 1);
+                gap.left(k);
+                model.left(k);
+            } else {
+                int k = StdRandom.uniform(Math.min(gap.size() - gap.cursor(), 100) + 1);
+                gap.right(k);
+                model.right(k);
+            }
+            if (t % 500 == 0) {
+                agree &= gap.toString().equals(model.toString());
+            }
+        }
+        agree &= gap.toString().equals(model.toString());
+        StdOut.println("agrees with Buffer? " + agree);
+
+        // Bulk edits, and substrings that fall before, after and across the gap.
+        GapBuffer text = new GapBuffer();
+        text.insert("hello world");
+        text.left(5);
+        boolean bulk = text.delete(5).equals("world");
+        text.insert(new StringBuilder("there"));
+        text.left(7);
+        bulk &= text.toString().equals("hell|o there") && text.delete(0).isEmpty();
+        String plain = "hello there";
+        for (int from = 0; from <= plain.length(); from++) {
+            for (int to = from; to <= plain.length(); to++) {
+                bulk &= text.substring(from, to).equals(plain.substring(from, to));
+            }
+        }
+        StdOut.println("bulk insert, delete and substring work? " + bulk);
+    }
+}
@@ -1,13 +1,27 @@
 import dsa.LinkedQueue;
 import stdlib.StdOut;
 
+// Writes the order in which n people standing in a circle (numbered 1 to n) are eliminated when
+// every m-th one is. With -s, writes only the survivor; with -q, simulates the circle with a
+// queue, which takes about n * m steps.
 public class Josephus {
     // Entry point.
     public static void main(String[] args) {
         // Accept n (int) and m (int) as command-line arguments.
         int n = Integer.parseInt(args[0]);
         int m = Integer.parseInt(args[1]);
+        String mode = args.length > 2 ? args[2] : "";
 
+        if (mode.equals("-s")) {
+            StdOut.println(survivor(n, m));
+            return;
+        }
+        if (!mode.equals("-q")) {
+            for (int pos : order(n, m)) {
+                StdOut.println(pos);
+            }
+            return;
+        }
 
         // Create a queue q and enqueue integers 1, 2, ..., n.
         LinkedQueue<Integer> q = new LinkedQueue<Integer>();
@@ -28,4 +42,78 @@ public class Josephus {
             }
         }
     }
+
+    // Returns the positions (1 to n) in the order they are eliminated, every m-th one going. The
+    // people still standing are kept in a Fenwick tree of 0/1 counts, so the k-th of them is found
+    // by binary lifting and each elimination takes O(log n) time, with no allocation.
+    public static int[] order(int n, int m) {
+        check(n, m);
+        int[] tree = new int[n + 1];
+        for (int i = 1; i <= n; i++) {
+            tree[i] = i & -i; // Fenwick tree of n ones
+        }
+        int top = Integer.highestOneBit(Math.max(1, n));
+        int[] eliminated = new int[n];
+        int rank = 0; // rank, among those standing, of the person the count starts from
+        for (int left = n; left > 0; left--) {
+            rank = (int) ((rank + (long) m - 1) % left);
+
+            // Find the position whose prefix count is rank + 1.
+            int pos = 0;
+            int rest = rank;
+            for (int step = top; step > 0; step >>= 1) {
+                if (pos + step <= n && tree[pos + step] <= rest) {
+                    pos += step;
+                    rest -= tree[pos];
+                }
+            }
+            pos++;
+            eliminated[n - left] = pos;
+            for (int j = pos; j <= n; j += j & -j) {
+                tree[j]--;
+            }
+        }
+        return eliminated;
+    }
+
+    // Returns the survivor (1 to n) when every m-th person is eliminated, using the recurrence
+    // J(1) = 0, J(k + 1) = (J(k) + m) mod (k + 1) for 0-based positions. While J(k) + m does not
+    // wrap around, many steps are taken at once, so this takes O(min(n, m log n)) time.
+    public static long survivor(long n, long m) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Illegal n");
+        }
+        if (m <= 0) {
+            throw new IllegalArgumentException("Illegal m");
+        }
+        if (m == 1) {
+            return n;
+        }
+        long j = 0; // J(k)
+        long k = 1;
+        while (k < n) {
+            // Each step without wrap-around adds m to j and 1 to k, which stays valid while
+            // j + m < k + 1.
+            long steps = Math.min((k - j - 1) / (m - 1), n - k);
+            if (steps > 0) {
+                j += steps * m;
+                k += steps;
+            }
+            if (k < n) {
+                j = (j + m) % (k + 1);
+                k++;
+            }
+        }
+        return j + 1;
+    }
+
+    // Throws if n or m is illegal.
+    private static void check(int n, int m) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Illegal n");
+        }
+        if (m <= 0) {
+            throw new IllegalArgumentException("Illegal m");
+        }
+    }
 }
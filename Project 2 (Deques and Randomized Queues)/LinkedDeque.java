@@ -1,5 +1,10 @@
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import stdlib.StdOut;
 import stdlib.StdRandom;
@@ -116,11 +121,90 @@ public class LinkedDeque<Item> implements Iterable<Item> {
         return item;
     }
 
+    // Moves all the items of other to the back of this deque, leaving other empty. Takes
+    // constant time, since the nodes of other are linked in rather than copied.
+    public void appendAll(LinkedDeque<Item> other) {
+        if (other == this) {
+            throw new IllegalArgumentException("cannot splice a deque into itself");
+        }
+        if (other.isEmpty()) {
+            return;
+        }
+        if (isEmpty()) {
+            first = other.first;
+        } else {
+            last.next = other.first;
+            other.first.prev = last;
+        }
+        last = other.last;
+        n += other.n;
+        other.clear();
+    }
+
+    // Moves all the items of other to the front of this deque, leaving other empty. Takes
+    // constant time, since the nodes of other are linked in rather than copied.
+    public void prependAll(LinkedDeque<Item> other) {
+        if (other == this) {
+            throw new IllegalArgumentException("cannot splice a deque into itself");
+        }
+        if (other.isEmpty()) {
+            return;
+        }
+        if (isEmpty()) {
+            last = other.last;
+        } else {
+            first.prev = other.last;
+            other.last.next = first;
+        }
+        first = other.first;
+        n += other.n;
+        other.clear();
+    }
+
+    // Adds the items to the back of this deque, in order. The deque is unchanged if any item is
+    // null.
+    public void addAllLast(Item[] items) {
+        for (Item item : items) {
+            if (item == null) {
+                throw new NullPointerException("item is null");
+            }
+        }
+        for (Item item : items) {
+            Node node = new Node();
+            node.item = item;
+            node.prev = last;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+        }
+        n += items.length;
+    }
+
     // Returns an iterator to iterate over the items in this deque from front to back.
     public Iterator<Item> iterator() {
         return new DequeIterator();
     }
 
+    // Returns a spliterator over the items in this deque from front to back. It splits off
+    // growing batches of items into arrays, so a parallel stream can share out the work even
+    // though the list can only be walked from one end.
+    public Spliterator<Item> spliterator() {
+        return new DequeSpliterator();
+    }
+
+    // Returns a sequential stream over the items in this deque.
+    public Stream<Item> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    // Returns a parallel stream over the items in this deque.
+    public Stream<Item> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
     // Returns a string representation of this deque.
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -156,6 +240,96 @@ public class LinkedDeque<Item> implements Iterable<Item> {
         }
     }
 
+    // A deque spliterator. It binds to the deque when first used, and assumes the deque is not
+    // modified after that.
+    private class DequeSpliterator implements Spliterator<Item> {
+        private static final int BATCH_UNIT = 1 << 10; // batch size increment
+        private static final int MAX_BATCH = 1 << 25;  // largest batch size
+
+        private Node current; // node holding the next item
+        private int est;      // number of items left, or -1 before binding
+        private int batch;    // size of the last batch split off
+
+        // Constructs a spliterator.
+        public DequeSpliterator() {
+            est = -1;
+        }
+
+        // Returns the number of items left, binding to the deque if needed.
+        private int getEst() {
+            if (est < 0) {
+                current = first;
+                est = n;
+            }
+            return est;
+        }
+
+        // Returns the number of items left.
+        public long estimateSize() {
+            return getEst();
+        }
+
+        // Returns the characteristics of this spliterator.
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED
+                    | Spliterator.NONNULL;
+        }
+
+        // Performs action on the next item and returns true, or returns false if there is none.
+        public boolean tryAdvance(Consumer<? super Item> action) {
+            if (action == null) {
+                throw new NullPointerException("action is null");
+            }
+            if (getEst() == 0) {
+                return false;
+            }
+            Item item = current.item;
+            current = current.next;
+            est--;
+            action.accept(item);
+            return true;
+        }
+
+        // Performs action on each remaining item.
+        public void forEachRemaining(Consumer<? super Item> action) {
+            if (action == null) {
+                throw new NullPointerException("action is null");
+            }
+            for (int i = getEst(); i > 0; i--) {
+                Item item = current.item;
+                current = current.next;
+                est--;
+                action.accept(item);
+            }
+        }
+
+        // Splits off the next batch of items into an array-backed spliterator, or returns null
+        // if there is at most one item left.
+        public Spliterator<Item> trySplit() {
+            int s = getEst();
+            if (s <= 1) {
+                return null;
+            }
+            int size = Math.min(Math.min(batch + BATCH_UNIT, MAX_BATCH), s);
+            Object[] a = new Object[size];
+            for (int i = 0; i < size; i++) {
+                a[i] = current.item;
+                current = current.next;
+            }
+            batch = size;
+            est -= size;
+            return Spliterators.spliterator(a, 0, size, Spliterator.ORDERED
+                    | Spliterator.NONNULL);
+        }
+    }
+
+    // Empties this deque (without touching its nodes).
+    private void clear() {
+        first = null;
+        last = null;
+        n = 0;
+    }
+
     // A data type to represent a doubly-linked list. Each node in the list stores a generic item
     // and references to the next and previous nodes in the list.
     private class Node {
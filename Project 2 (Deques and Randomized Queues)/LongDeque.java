@@ -0,0 +1,213 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+import stdlib.StdOut;
+import stdlib.StdRandom;
+
+// A data type to represent a double-ended queue (aka deque) of long values, implemented using a
+// circular resizing long[] as the underlying data structure. It has the same API as
+// LinkedDeque<Long>, but stores each value in 8 bytes instead of a node and a boxed Long.
+public class LongDeque implements Iterable<Long> {
+    private static final int MIN_CAPACITY = 8; // smallest capacity of the array
+
+    private long[] q; // array to store the values
+    private int head; // index of the front value
+    private int n;    // size of the deque
+
+    // Constructs an empty deque.
+    public LongDeque() {
+        q = new long[MIN_CAPACITY];
+        head = 0;
+        n = 0;
+    }
+
+    // Constructs a deque holding the values of a, front to back.
+    public LongDeque(long[] a) {
+        this();
+        addAllLast(a);
+    }
+
+    // Returns true if this deque is empty, and false otherwise.
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    // Returns the number of values in this deque.
+    public int size() {
+        return n;
+    }
+
+    // Adds x to the front of this deque.
+    public void addFirst(long x) {
+        if (n == q.length) {
+            resize(DequeSupport.grow(q.length, n + 1L));
+        }
+        head = (head - 1) & (q.length - 1);
+        q[head] = x;
+        n++;
+    }
+
+    // Adds x to the back of this deque.
+    public void addLast(long x) {
+        if (n == q.length) {
+            resize(DequeSupport.grow(q.length, n + 1L));
+        }
+        q[(head + n) & (q.length - 1)] = x;
+        n++;
+    }
+
+    // Adds the values of a to the back of this deque, in order.
+    public void addAllLast(long[] a) {
+        int capacity = DequeSupport.grow(q.length, (long) n + a.length);
+        if (capacity != q.length) {
+            resize(capacity);
+        }
+        int tail = (head + n) & (q.length - 1);
+        int toEnd = Math.min(a.length, q.length - tail);
+        System.arraycopy(a, 0, q, tail, toEnd);
+        System.arraycopy(a, toEnd, q, 0, a.length - toEnd);
+        n += a.length;
+    }
+
+    // Returns the value at the front of this deque.
+    public long peekFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        return q[head];
+    }
+
+    // Removes and returns the value at the front of this deque.
+    public long removeFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        long x = q[head];
+        head = (head + 1) & (q.length - 1);
+        n--;
+        shrinkIfSparse();
+        return x;
+    }
+
+    // Returns the value at the back of this deque.
+    public long peekLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        return q[(head + n - 1) & (q.length - 1)];
+    }
+
+    // Removes and returns the value at the back of this deque.
+    public long removeLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        long x = q[(head + n - 1) & (q.length - 1)];
+        n--;
+        shrinkIfSparse();
+        return x;
+    }
+
+    // Returns the value at position i from the front of this deque.
+    public long get(int i) {
+        if (i < 0 || i >= n) {
+            throw new IndexOutOfBoundsException("Illegal index " + i);
+        }
+        return q[(head + i) & (q.length - 1)];
+    }
+
+    // Returns the values in this deque as a new array, front to back.
+    public long[] toArray() {
+        long[] a = new long[n];
+        int toEnd = Math.min(n, q.length - head);
+        System.arraycopy(q, head, a, 0, toEnd);
+        System.arraycopy(q, 0, a, toEnd, n - toEnd);
+        return a;
+    }
+
+    // Returns an iterator to iterate over the values in this deque from front to back. Call
+    // nextLong() rather than next() to avoid boxing.
+    public PrimitiveIterator.OfLong iterator() {
+        return new DequeIterator();
+    }
+
+    // Returns a string representation of this deque.
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    // A deque iterator.
+    private class DequeIterator implements PrimitiveIterator.OfLong {
+        private int i; // position of the next value, counted from the front
+
+        // Returns true if there are more values to iterate, and false otherwise.
+        public boolean hasNext() {
+            return i < n;
+        }
+
+        // Returns the next value.
+        public long nextLong() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("Iterator is empty");
+            }
+            return q[(head + i++) & (q.length - 1)];
+        }
+    }
+
+    // Halves the array if the deque is a quarter full.
+    private void shrinkIfSparse() {
+        if (q.length > MIN_CAPACITY && n <= q.length / 4) {
+            resize(q.length / 2);
+        }
+    }
+
+    // Resizes the underlying array, moving the front value to index 0.
+    private void resize(int capacity) {
+        long[] temp = new long[capacity];
+        int toEnd = Math.min(n, q.length - head);
+        System.arraycopy(q, head, temp, 0, toEnd);
+        System.arraycopy(q, 0, temp, toEnd, n - toEnd);
+        q = temp;
+        head = 0;
+    }
+
+    // Unit tests the data type.
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        LongDeque deque = new LongDeque();
+        LinkedDeque<Long> linked = new LinkedDeque<Long>();
+        StdOut.println("Filling the deques...");
+        for (int i = 0; i < n; i++) {
+            long x = StdRandom.uniform(-1000, 1000) * 1000000007L;
+            if (StdRandom.bernoulli(0.5)) {
+                deque.addFirst(x);
+                linked.addFirst(x);
+            } else {
+                deque.addLast(x);
+                linked.addLast(x);
+            }
+        }
+        StdOut.println("Same contents? " + deque.toString().equals(linked.toString()));
+        long sum = 0;
+        PrimitiveIterator.OfLong it = deque.iterator();
+        while (it.hasNext()) {
+            sum += it.nextLong();
+        }
+        StdOut.println("Sum of values = " + sum);
+        LongDeque copy = new LongDeque(deque.toArray());
+        copy.addAllLast(deque.toArray());
+        StdOut.println("Copy has twice the values? " + (copy.size() == 2 * deque.size()));
+        StdOut.println("Emptying the deques...");
+        boolean same = true;
+        while (!linked.isEmpty()) {
+            if (StdRandom.bernoulli(0.5)) {
+                same &= deque.removeFirst() == linked.removeFirst();
+            } else {
+                same &= deque.removeLast() == linked.removeLast();
+            }
+        }
+        StdOut.println("Same values removed? " + same);
+        StdOut.println("deque.isEmpty()? " + deque.isEmpty());
+    }
+}
@@ -0,0 +1,210 @@
+import java.util.NoSuchElementException;
+
+import stdlib.StdOut;
+
+// A library of static methods for random-access primality testing of 64-bit integers, using a
+// deterministic Miller-Rabin test over Montgomery arithmetic.
+public class MillerRabin {
+    // Primes used by the trial-division pre-filter.
+    private static final int[] SMALL_PRIMES = {
+        2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53, 59, 61, 67, 71, 73, 79, 83,
+        89, 97, 101, 103, 107, 109, 113, 127, 131, 137, 139, 149, 151, 157, 163, 167, 173, 179,
+        181, 191, 193, 197, 199, 211, 223, 227, 229, 233, 239, 241, 251
+    };
+
+    // Witnesses that make Miller-Rabin deterministic for all n < 2^32 (Jaeschke).
+    private static final long[] WITNESSES_32 = {2, 7, 61};
+
+    // Witnesses that make Miller-Rabin deterministic for all n < 2^64 (Sinclair).
+    private static final long[] WITNESSES_64 = {
+        2, 325, 9375, 28178, 450775, 9780504, 1795265022
+    };
+
+    // Largest prime that fits in a long.
+    private static final long LARGEST_PRIME = Long.MAX_VALUE - 24;
+
+    // Not instantiable.
+    private MillerRabin() {
+    }
+
+    // Returns true if x is a prime, and false otherwise.
+    public static boolean isPrime(long x) {
+        if (x < 2) {
+            return false;
+        }
+        for (int p : SMALL_PRIMES) {
+            if (x == p) {
+                return true;
+            }
+            if (x % p == 0) {
+                return false;
+            }
+        }
+
+        // Every composite below 257^2 has a prime factor in SMALL_PRIMES.
+        if (x < 257 * 257) {
+            return true;
+        }
+        return millerRabin(x, x < (1L << 32) ? WITNESSES_32 : WITNESSES_64);
+    }
+
+    // Returns the smallest prime that is strictly greater than x.
+    public static long nextPrime(long x) {
+        if (x < 2) {
+            return 2;
+        }
+        if (x >= LARGEST_PRIME) {
+            throw new ArithmeticException("No prime greater than " + x + " fits in a long");
+        }
+
+        // Walk the odd numbers after x; the pre-filter rejects most of them cheaply.
+        long p = (x + 1) | 1;
+        while (!isPrime(p)) {
+            p += 2;
+        }
+        return p;
+    }
+
+    // Returns the largest prime that is strictly less than x.
+    public static long prevPrime(long x) {
+        if (x <= 2) {
+            throw new NoSuchElementException("No prime less than " + x);
+        }
+        if (x == 3) {
+            return 2;
+        }
+
+        // Walk the odd numbers before x.
+        long p = (x - 2) | 1;
+        while (!isPrime(p)) {
+            p -= 2;
+        }
+        return p;
+    }
+
+    // Returns true if the odd number n > 2 passes a strong probable prime test to every base in
+    // witnesses, and false otherwise.
+    private static boolean millerRabin(long n, long[] witnesses) {
+        // Write n - 1 as d * 2^s with d odd.
+        int s = Long.numberOfTrailingZeros(n - 1);
+        long d = (n - 1) >>> s;
+
+        // Montgomery constants for R = 2^64: nInv = n^-1 mod R, one = R mod n, r2 = R^2 mod n.
+        long nInv = inverse(n);
+        long one = Long.remainderUnsigned(-n, n);
+        long minusOne = n - one;
+        long r2 = one;
+        for (int i = 0; i < 64; i++) {
+            r2 = addMod(r2, r2, n);
+        }
+
+        for (long w : witnesses) {
+            long a = w % n;
+            if (a == 0) {
+                continue;
+            }
+            long x = pow(multiply(a, r2, n, nInv), d, one, n, nInv);
+            if (x == one || x == minusOne) {
+                continue;
+            }
+            boolean composite = true;
+            for (int i = 1; i < s; i++) {
+                x = multiply(x, x, n, nInv);
+                if (x == minusOne) {
+                    composite = false;
+                    break;
+                }
+            }
+            if (composite) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Returns base^e in Montgomery form, given base and one (= R mod n) in Montgomery form.
+    private static long pow(long base, long e, long one, long n, long nInv) {
+        long result = one;
+        while (e > 0) {
+            if ((e & 1) == 1) {
+                result = multiply(result, base, n, nInv);
+            }
+            base = multiply(base, base, n, nInv);
+            e >>>= 1;
+        }
+        return result;
+    }
+
+    // Returns the Montgomery product a * b * R^-1 mod n, for 0 <= a, b < n < 2^63.
+    private static long multiply(long a, long b, long n, long nInv) {
+        // a * b fits in 126 bits, so the signed high word is also the unsigned high word.
+        long hi = Math.multiplyHigh(a, b);
+        long lo = a * b;
+
+        // m * n agrees with a * b in the low word, so subtracting it leaves an exact multiple of
+        // R whose quotient lies in (-n, n).
+        long m = lo * nInv;
+        long mnHi = Math.multiplyHigh(m, n) + ((m >> 63) & n);
+        long t = hi - mnHi;
+        return t < 0 ? t + n : t;
+    }
+
+    // Returns (a + b) mod n, for 0 <= a, b < n < 2^63.
+    private static long addMod(long a, long b, long n) {
+        long sum = a + b;
+        return sum < 0 || sum >= n ? sum - n : sum;
+    }
+
+    // Returns the inverse of the odd number n modulo 2^64, using Newton's iteration.
+    private static long inverse(long n) {
+        // n is its own inverse modulo 8, and each step doubles the number of correct bits.
+        long x = n;
+        for (int i = 0; i < 5; i++) {
+            x *= 2 - n * x;
+        }
+        return x;
+    }
+
+    // Returns true if x is a prime, and false otherwise, using trial division.
+    private static boolean isPrimeSlow(long x) {
+        if (x < 2) {
+            return false;
+        }
+        for (long i = 2; i <= x / i; i++) {
+            if (x % i == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Unit tests the library.
+    public static void main(String[] args) {
+        long x = Long.parseLong(args[0]);
+        StdOut.println("isPrime(" + x + ")   = " + isPrime(x));
+        StdOut.println("nextPrime(" + x + ") = " + nextPrime(x));
+        if (x > 2) {
+            StdOut.println("prevPrime(" + x + ") = " + prevPrime(x));
+        }
+
+        // Cross-check against trial division below 10^6.
+        boolean agree = true;
+        for (long i = 0; i < 1000000; i++) {
+            agree &= isPrime(i) == isPrimeSlow(i);
+        }
+        StdOut.println("agrees with trial division below 10^6? " + agree);
+
+        // Time a batch of random-access queries.
+        int trials = 1000000;
+        long seed = x | 1;
+        long count = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < trials; i++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            count += isPrime((seed >>> 1) | 1) ? 1 : 0;
+        }
+        double elapsed = (System.nanoTime() - start) / (double) trials;
+        StdOut.printf("%d random odd 63-bit queries: %d primes, %.1f ns/query\n", trials, count,
+                elapsed);
+    }
+}
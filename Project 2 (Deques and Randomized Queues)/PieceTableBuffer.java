@@ -0,0 +1,480 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import stdlib.StdOut;
+
+// A data type to represent a text editor buffer over a file of any size, implemented using a piece
+// table. The original file is memory mapped read-only and never changed; every inserted character
+// is appended to an add buffer. The text is a sequence of pieces, each a range of either the file
+// or the add buffer, kept as the leaves of a height-balanced tree (as in RopeBuffer) whose
+// internal nodes know the length of the text below them. The cursor is just a position, so moving
+// it takes constant time, and inserting or deleting at the cursor takes O(log p) time for p
+// pieces; opening a file reads none of it onto the heap.
+//
+// Each character is one byte of the file (ISO-8859-1), so any file round-trips byte for byte, and
+// only characters below 256 can be inserted. Saving streams the pieces out in order, copying
+// those of the original file with FileChannel.transferTo(), which need not pass through the heap.
+public class PieceTableBuffer implements Closeable {
+    // Number of bytes of the file covered by one mapping (a mapping is limited to 2 GB).
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    private FileChannel file;            // the original file, or null if there is none
+    private MappedByteBuffer[] segments; // the original file, mapped in segments
+    private byte[] add;                  // the add buffer
+    private int added;                   // number of bytes in the add buffer
+    private Node root;                   // the pieces, or null if the text is empty
+    private long cursor;                 // number of characters left of the cursor
+
+    // Creates an empty buffer.
+    public PieceTableBuffer() {
+        file = null;
+        segments = new MappedByteBuffer[0];
+        add = new byte[16];
+        added = 0;
+        root = null;
+        cursor = 0;
+    }
+
+    // Creates a buffer holding the contents of the file at path, with the cursor at its start.
+    public PieceTableBuffer(Path path) throws IOException {
+        this();
+        file = FileChannel.open(path, StandardOpenOption.READ);
+        long length = file.size();
+        segments = new MappedByteBuffer[(int) ((length + SEGMENT_MASK) >>> SEGMENT_BITS)];
+        for (int i = 0; i < segments.length; i++) {
+            long start = (long) i << SEGMENT_BITS;
+            long size = Math.min(SEGMENT_MASK + 1, length - start);
+            segments[i] = file.map(FileChannel.MapMode.READ_ONLY, start, size);
+        }
+        if (length > 0) {
+            root = new Node(false, 0, length);
+        }
+    }
+
+    // Inserts c at the cursor position.
+    public void insert(char c) {
+        check(c);
+        append(c);
+        root = insert(root, cursor, new Node(true, added - 1, 1));
+        cursor++;
+    }
+
+    // Inserts the characters of s at the cursor position, leaving the cursor after them.
+    public void insert(CharSequence s) {
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            check(s.charAt(i));
+        }
+        if (len == 0) {
+            return;
+        }
+        for (int i = 0; i < len; i++) {
+            append(s.charAt(i));
+        }
+        root = insert(root, cursor, new Node(true, added - len, len));
+        cursor += len;
+    }
+
+    // Deletes and returns the character immediately ahead of the cursor.
+    public char delete() {
+        if (cursor == size()) {
+            throw new NoSuchElementException("Nothing ahead of the cursor");
+        }
+        char c = charAt(cursor);
+        root = delete(root, cursor, cursor + 1);
+        return c;
+    }
+
+    // Deletes the k characters immediately ahead of the cursor. Unlike delete(), does not return
+    // them, since there may be far too many to hold.
+    public void delete(long k) {
+        if (k < 0 || k > size() - cursor) {
+            throw new NoSuchElementException("Cannot delete " + k + " characters");
+        }
+        root = delete(root, cursor, cursor + k);
+    }
+
+    // Moves the cursor k positions to the left.
+    public void left(long k) {
+        if (k < 0 || k > cursor) {
+            throw new NoSuchElementException("Cannot move the cursor " + k + " to the left");
+        }
+        cursor -= k;
+    }
+
+    // Moves the cursor k positions to the right.
+    public void right(long k) {
+        if (k < 0 || k > size() - cursor) {
+            throw new NoSuchElementException("Cannot move the cursor " + k + " to the right");
+        }
+        cursor += k;
+    }
+
+    // Returns the number of characters in this buffer.
+    public long size() {
+        return length(root);
+    }
+
+    // Returns the position of the cursor (the number of characters left of it).
+    public long cursor() {
+        return cursor;
+    }
+
+    // Returns the number of pieces the text is made of.
+    public int pieces() {
+        return count(root);
+    }
+
+    // Returns the character at position i of this buffer.
+    public char charAt(long i) {
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException("Illegal index " + i);
+        }
+        Node t = root;
+        while (t.left != null) {
+            if (i < t.left.length) {
+                t = t.left;
+            } else {
+                i -= t.left.length;
+                t = t.right;
+            }
+        }
+        return byteAt(t.added, t.start + i);
+    }
+
+    // Returns the characters at positions [from, to) of this buffer.
+    public String substring(long from, long to) {
+        if (from < 0 || to > size() || from > to) {
+            throw new IndexOutOfBoundsException("Illegal range [" + from + ", " + to + ")");
+        }
+        if (to - from > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Range too long for a string");
+        }
+        StringBuilder sb = new StringBuilder((int) (to - from));
+        append(root, from, to, sb);
+        return sb.toString();
+    }
+
+    // Writes the text of this buffer to the file at path, which may be the one it was opened
+    // from.
+    //
+    // A new file is simply written. An existing file is not overwritten in place, since the
+    // pieces may still be reading it: the text is written to a temporary file in the same
+    // directory, which is given the file's permissions (and group, where allowed) and then
+    // replaces it, so a failure leaves the file as it was. The replacement is a new file (a new
+    // inode), so other hard links to the old file keep the old text, and a process that has the
+    // old file open (say, one still appending to a log) keeps writing to it, not to the new one.
+    public void save(Path path) throws IOException {
+        if (Files.notExists(path)) {
+            boolean done = false;
+            try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                write(root, out);
+                out.force(false);
+                done = true;
+            } finally {
+                if (!done) {
+                    Files.deleteIfExists(path);
+                }
+            }
+            return;
+        }
+        Path dir = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(dir, "buffer", ".tmp");
+        try {
+            copyAttributes(path, temp);
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                write(root, out);
+                out.force(false);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Closes the original file. The mappings stay valid until they are garbage collected.
+    public void close() throws IOException {
+        if (file != null) {
+            file.close();
+        }
+    }
+
+    // Returns a string representation of the buffer with the "|" character (not part of the
+    // buffer) at the cursor position.
+    public String toString() {
+        return substring(0, cursor) + "|" + substring(cursor, size());
+    }
+
+    // Gives target the POSIX permissions of source, and its group if this process may, on file
+    // systems that have them.
+    private static void copyAttributes(Path source, Path target) throws IOException {
+        PosixFileAttributeView view = Files.getFileAttributeView(source,
+                PosixFileAttributeView.class);
+        if (view == null) {
+            return;
+        }
+        PosixFileAttributes attributes = view.readAttributes();
+        Files.setPosixFilePermissions(target, attributes.permissions());
+        try {
+            Files.getFileAttributeView(target, PosixFileAttributeView.class)
+                    .setGroup(attributes.group());
+        } catch (IOException e) {
+            // Not a member of the group; the file keeps this process's group.
+        }
+    }
+
+    // Throws if c cannot be stored in a single byte.
+    private static void check(char c) {
+        if (c > 0xff) {
+            throw new IllegalArgumentException("Character is not ISO-8859-1");
+        }
+    }
+
+    // Appends c to the add buffer.
+    private void append(char c) {
+        if (added == add.length) {
+            if (added == Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Add buffer is full");
+            }
+            add = Arrays.copyOf(add, (int) Math.min(2L * added, Integer.MAX_VALUE - 8));
+        }
+        add[added++] = (byte) c;
+    }
+
+    // Returns the character at position i of the add buffer if added is true, or of the original
+    // file otherwise.
+    private char byteAt(boolean added, long i) {
+        if (added) {
+            return (char) (add[(int) i] & 0xff);
+        }
+        return (char) (segments[(int) (i >>> SEGMENT_BITS)].get((int) (i & SEGMENT_MASK)) & 0xff);
+    }
+
+    // Appends the characters at positions [from, to) of t to sb.
+    private void append(Node t, long from, long to, StringBuilder sb) {
+        if (t == null || from >= to) {
+            return;
+        }
+        if (t.left == null) {
+            for (long i = from; i < to; i++) {
+                sb.append(byteAt(t.added, t.start + i));
+            }
+            return;
+        }
+        long mid = t.left.length;
+        append(t.left, from, Math.min(to, mid), sb);
+        append(t.right, Math.max(from, mid) - mid, to - mid, sb);
+    }
+
+    // Writes the pieces of t to out, in order.
+    private void write(Node t, FileChannel out) throws IOException {
+        if (t == null) {
+            return;
+        }
+        if (t.left != null) {
+            write(t.left, out);
+            write(t.right, out);
+            return;
+        }
+        if (t.added) {
+            ByteBuffer bytes = ByteBuffer.wrap(add, (int) t.start, (int) t.length);
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            return;
+        }
+        long position = t.start;
+        long end = t.start + t.length;
+        while (position < end) {
+            long n = file.transferTo(position, end - position, out);
+            if (n <= 0) {
+                // The file got shorter, or the channel gave up; fall back to the mapping.
+                ByteBuffer bytes = segments[(int) (position >>> SEGMENT_BITS)].duplicate();
+                int offset = (int) (position & SEGMENT_MASK);
+                bytes.position(offset);
+                bytes.limit((int) Math.min(bytes.capacity(), offset + end - position));
+                n = bytes.remaining();
+                while (bytes.hasRemaining()) {
+                    out.write(bytes);
+                }
+            }
+            position += n;
+        }
+    }
+
+    // A data type to represent a node of the tree: a piece (a leaf), or an internal node with two
+    // non-empty children.
+    private static class Node {
+        private final boolean added; // is the piece in the add buffer (rather than the file)?
+        private final long start;    // position of the piece in its buffer
+        private final long length;   // number of characters below this node
+        private final Node left;     // the left child, for an internal node; null for a piece
+        private final Node right;    // the right child, for an internal node
+        private final int height;    // height of this node, 0 for a piece
+
+        // Constructs a piece of length characters starting at position start of its buffer.
+        Node(boolean added, long start, long length) {
+            this.added = added;
+            this.start = start;
+            this.length = length;
+            left = null;
+            right = null;
+            height = 0;
+        }
+
+        // Constructs an internal node with the given children.
+        Node(Node left, Node right) {
+            added = false;
+            start = 0;
+            this.left = left;
+            this.right = right;
+            length = left.length + right.length;
+            height = 1 + Math.max(left.height, right.height);
+        }
+    }
+
+    // Returns the number of characters in t.
+    private static long length(Node t) {
+        return t == null ? 0 : t.length;
+    }
+
+    // Returns the number of pieces in t.
+    private static int count(Node t) {
+        if (t == null) {
+            return 0;
+        }
+        return t.left == null ? 1 : count(t.left) + count(t.right);
+    }
+
+    // Returns the piece holding characters [from, to) of piece t, or null if it is empty.
+    private static Node slice(Node t, long from, long to) {
+        if (from >= to) {
+            return null;
+        }
+        return new Node(t.added, t.start + from, to - from);
+    }
+
+    // Returns the tree holding the text of a followed by that of b. Takes time proportional to
+    // the difference of their heights. Two pieces that are adjacent in the same buffer become
+    // one, so typing at the cursor keeps extending a single piece.
+    private static Node concat(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.left == null && b.left == null && a.added == b.added
+                && a.start + a.length == b.start) {
+            return new Node(a.added, a.start, a.length + b.length);
+        }
+        if (a.height > b.height + 1) {
+            return balance(a.left, concat(a.right, b));
+        }
+        if (b.height > a.height + 1) {
+            return balance(concat(a, b.left), b.right);
+        }
+        return new Node(a, b);
+    }
+
+    // Returns a node with children a and b, rotating if their heights differ by 2.
+    private static Node balance(Node a, Node b) {
+        if (a.height > b.height + 1) {
+            if (a.left.height >= a.right.height) {
+                return new Node(a.left, new Node(a.right, b));
+            }
+            Node m = a.right;
+            return new Node(new Node(a.left, m.left), new Node(m.right, b));
+        }
+        if (b.height > a.height + 1) {
+            if (b.right.height >= b.left.height) {
+                return new Node(new Node(a, b.left), b.right);
+            }
+            Node m = b.left;
+            return new Node(new Node(a, m.left), new Node(m.right, b.right));
+        }
+        return new Node(a, b);
+    }
+
+    // Returns t with the piece p inserted at position i.
+    private static Node insert(Node t, long i, Node p) {
+        if (t == null) {
+            return p;
+        }
+        if (t.left == null) {
+            return concat(concat(slice(t, 0, i), p), slice(t, i, t.length));
+        }
+        if (i <= t.left.length) {
+            return concat(insert(t.left, i, p), t.right);
+        }
+        return concat(t.left, insert(t.right, i - t.left.length, p));
+    }
+
+    // Returns t with the characters at positions [from, to) removed, or null if none are left.
+    private static Node delete(Node t, long from, long to) {
+        if (t == null || from >= to) {
+            return t;
+        }
+        if (from == 0 && to == t.length) {
+            return null;
+        }
+        if (t.left == null) {
+            return concat(slice(t, 0, from), slice(t, to, t.length));
+        }
+        long mid = t.left.length;
+        Node left = from < mid ? delete(t.left, from, Math.min(to, mid)) : t.left;
+        Node right = to > mid ? delete(t.right, Math.max(from, mid) - mid, to - mid) : t.right;
+        return concat(left, right);
+    }
+
+    // Unit tests the data type, editing the text through a temporary file.
+    public static void main(String[] args) throws IOException {
+        String s = "There is grandeur in this view of life, with its several powers, having been " +
+                "originally breathed into a few forms or into one; and that, whilst this planet " +
+                "has gone cycling on according to the fixed law of gravity, from so simple a " +
+                "beginning endless forms most beautiful and most wonderful have been, and are " +
+                "being, evolved. ~ Charles Darwin, The Origin of Species";
+        Path path = Files.createTempFile("buffer", ".txt");
+        try {
+            Files.write(path, s.getBytes("ISO-8859-1"));
+            boolean posix = Files.getFileAttributeView(path, PosixFileAttributeView.class) != null;
+            if (posix) {
+                Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-r--r--"));
+            }
+            try (PieceTableBuffer buf = new PieceTableBuffer(path)) {
+                buf.right(97);
+                buf.insert("by the Creator ");
+                buf.right(228);
+                buf.delete();
+                buf.insert('-');
+                buf.insert('-');
+                buf.left(342);
+                StdOut.println(buf);
+                buf.save(path);
+                String saved = new String(Files.readAllBytes(path), "ISO-8859-1");
+                String text = buf.substring(0, buf.size());
+                StdOut.println("saved the same text? " + saved.equals(text));
+                if (posix) {
+                    StdOut.println("kept the permissions? " + PosixFilePermissions.toString(
+                            Files.getPosixFilePermissions(path)).equals("rw-r--r--"));
+                }
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
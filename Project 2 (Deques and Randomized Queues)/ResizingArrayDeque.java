@@ -0,0 +1,205 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import stdlib.StdOut;
+import stdlib.StdRandom;
+
+// A data type to represent a double-ended queue (aka deque), implemented using a circular
+// resizing array as the underlying data structure. Unlike LinkedDeque, adding an item does not
+// allocate a node; the array's capacity is always a power of two, so positions wrap around with
+// a bit mask instead of a division.
+public class ResizingArrayDeque<Item> implements Iterable<Item> {
+    private static final int MIN_CAPACITY = 8; // smallest capacity of the array
+
+    private Item[] q;       // array to store the items
+    private int head;       // index of the front item
+    private int n;          // size of the deque
+    private boolean shrink; // whether the array shrinks when it is a quarter full
+
+    // Constructs an empty deque that shrinks its array when it is a quarter full.
+    public ResizingArrayDeque() {
+        this(MIN_CAPACITY, true);
+    }
+
+    // Constructs an empty deque with room for at least capacity items. If shrink is false, the
+    // array never shrinks, which avoids resizing when the size keeps going up and down.
+    @SuppressWarnings("unchecked")
+    public ResizingArrayDeque(int capacity, boolean shrink) {
+        if (capacity < 0 || capacity > DequeSupport.MAX_CAPACITY) {
+            throw new IllegalArgumentException("Illegal capacity");
+        }
+        q = (Item[]) new Object[DequeSupport.grow(MIN_CAPACITY, capacity)];
+        head = 0;
+        n = 0;
+        this.shrink = shrink;
+    }
+
+    // Returns true if this deque is empty, and false otherwise.
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    // Returns the number of items in this deque.
+    public int size() {
+        return n;
+    }
+
+    // Adds item to the front of this deque.
+    public void addFirst(Item item) {
+        if (item == null) {
+            throw new NullPointerException("item is null");
+        }
+        if (n == q.length) {
+            resize(DequeSupport.grow(q.length, n + 1L));
+        }
+        head = (head - 1) & (q.length - 1);
+        q[head] = item;
+        n++;
+    }
+
+    // Adds item to the back of this deque.
+    public void addLast(Item item) {
+        if (item == null) {
+            throw new NullPointerException("item is null");
+        }
+        if (n == q.length) {
+            resize(DequeSupport.grow(q.length, n + 1L));
+        }
+        q[(head + n) & (q.length - 1)] = item;
+        n++;
+    }
+
+    // Returns the item at the front of this deque.
+    public Item peekFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        return q[head];
+    }
+
+    // Removes and returns the item at the front of this deque.
+    public Item removeFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        Item item = q[head];
+        q[head] = null; // avoid loitering
+        head = (head + 1) & (q.length - 1);
+        n--;
+        shrinkIfSparse();
+        return item;
+    }
+
+    // Returns the item at the back of this deque.
+    public Item peekLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        return q[(head + n - 1) & (q.length - 1)];
+    }
+
+    // Removes and returns the item at the back of this deque.
+    public Item removeLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        int last = (head + n - 1) & (q.length - 1);
+        Item item = q[last];
+        q[last] = null; // avoid loitering
+        n--;
+        shrinkIfSparse();
+        return item;
+    }
+
+    // Returns the item at position i from the front of this deque.
+    public Item get(int i) {
+        if (i < 0 || i >= n) {
+            throw new IndexOutOfBoundsException("Illegal index " + i);
+        }
+        return q[(head + i) & (q.length - 1)];
+    }
+
+    // Returns an iterator to iterate over the items in this deque from front to back.
+    public Iterator<Item> iterator() {
+        return new DequeIterator();
+    }
+
+    // Returns a string representation of this deque.
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Item item : this) {
+            sb.append(item);
+            sb.append(", ");
+        }
+        return n > 0 ? "[" + sb.substring(0, sb.length() - 2) + "]" : "[]";
+    }
+
+    // A deque iterator.
+    private class DequeIterator implements Iterator<Item> {
+        private int i; // position of the next item, counted from the front
+
+        // Returns true if there are more items to iterate, and false otherwise.
+        public boolean hasNext() {
+            return i < n;
+        }
+
+        // Returns the next item.
+        public Item next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("Iterator is empty");
+            }
+            return q[(head + i++) & (q.length - 1)];
+        }
+    }
+
+    // Halves the array if shrinking is enabled and the deque is a quarter full.
+    private void shrinkIfSparse() {
+        if (shrink && q.length > MIN_CAPACITY && n <= q.length / 4) {
+            resize(q.length / 2);
+        }
+    }
+
+    // Resizes the underlying array, moving the front item to index 0.
+    @SuppressWarnings("unchecked")
+    private void resize(int capacity) {
+        Item[] temp = (Item[]) new Object[capacity];
+        int toEnd = Math.min(n, q.length - head);
+        System.arraycopy(q, head, temp, 0, toEnd);
+        System.arraycopy(q, 0, temp, toEnd, n - toEnd);
+        q = temp;
+        head = 0;
+    }
+
+    // Unit tests the data type.
+    public static void main(String[] args) {
+        ResizingArrayDeque<Character> deque = new ResizingArrayDeque<Character>();
+        String quote = "There is grandeur in this view of life, with its several powers, having " +
+                "been originally breathed into a few forms or into one; and that, whilst this " +
+                "planet has gone cycling on according to the fixed law of gravity, from so simple" +
+                " a beginning endless forms most beautiful and most wonderful have been, and are " +
+                "being, evolved. ~ Charles Darwin, The Origin of Species";
+        int r = StdRandom.uniform(0, quote.length());
+        StdOut.println("Filling the deque...");
+        for (int i = quote.substring(0, r).length() - 1; i >= 0; i--) {
+            deque.addFirst(quote.charAt(i));
+        }
+        for (int i = 0; i < quote.substring(r).length(); i++) {
+            deque.addLast(quote.charAt(r + i));
+        }
+        StdOut.printf("The deque (%d characters): ", deque.size());
+        for (char c : deque) {
+            StdOut.print(c);
+        }
+        StdOut.println();
+        StdOut.println("Emptying the deque...");
+        double s = StdRandom.uniform();
+        for (int i = 0; i < quote.length(); i++) {
+            if (StdRandom.bernoulli(s)) {
+                deque.removeFirst();
+            } else {
+                deque.removeLast();
+            }
+        }
+        StdOut.println("deque.isEmpty()? " + deque.isEmpty());
+    }
+}
@@ -1,5 +1,7 @@
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
 
 import stdlib.StdOut;
 import stdlib.StdRandom;
@@ -9,13 +11,20 @@ import stdlib.StdRandom;
 public class ResizingArrayRandomQueue<Item> implements Iterable<Item> {
     private Item [] q; // array to store the items
     private int n; // size of the queue
+    private SplittableRandom random; // this queue's own random number generator
+    private int removals; // number of calls to dequeue(), so iterators can detect them
 
     // Constructs an empty random queue.
     public ResizingArrayRandomQueue() {
         q = (Item[]) new Object[2]; // new queue with the capacity of 2
         n = 0; // size at 0 for now
+        random = new SplittableRandom();
+    }
 
-
+    // Constructs an empty random queue whose random choices are determined by seed.
+    public ResizingArrayRandomQueue(long seed) {
+        this();
+        random = new SplittableRandom(seed);
     }
 
     // Returns true if this queue is empty, and false otherwise.
@@ -45,7 +54,7 @@ public class ResizingArrayRandomQueue<Item> implements Iterable<Item> {
         if (isEmpty()) {
             throw new NoSuchElementException("Random queue is empty");
         }
-        int r = StdRandom.uniform(0, n);
+        int r = random.nextInt(n);
         return q[r];
     }
 
@@ -54,7 +63,7 @@ public class ResizingArrayRandomQueue<Item> implements Iterable<Item> {
         if (isEmpty()) {
             throw new NoSuchElementException("Random queue is empty");
         }
-        int r = StdRandom.uniform(0, n);
+        int r = random.nextInt(n);
         Item item = q[r];
         q[r] = q[n - 1];
         q[n - 1] = null;
@@ -62,10 +71,14 @@ public class ResizingArrayRandomQueue<Item> implements Iterable<Item> {
             resize(q.length / 2);
         }
         n--;
+        removals++;
         return item;
     }
 
-    // Returns an independent iterator to iterate over the items in this queue in random order.
+    // Returns an iterator to iterate over the items in this queue in random order. The order is
+    // drawn lazily, so reading the first k items takes O(k) time and space, and the queue's array
+    // is never copied. Items enqueued after the iterator was created are not returned; once an
+    // item is dequeued, the iterator throws ConcurrentModificationException.
     public Iterator<Item> iterator() {
         return new RandomQueueIterator();
     }
@@ -80,24 +93,35 @@ public class ResizingArrayRandomQueue<Item> implements Iterable<Item> {
         return n > 0 ? "[" + sb.substring(0, sb.length() - 2) + "]" : "[]";
     }
 
-    // An iterator, doesn't implement remove() since it's optional.
+    // An iterator, doesn't implement remove() since it's optional. It runs a Fisher-Yates
+    // shuffle one step per item over a virtual array of the indices 0 to n - 1, where only the
+    // entries that have been swapped are stored (in a hash table); the others hold their own
+    // index.
     private class RandomQueueIterator implements Iterator<Item> {
-        private Item[] items; // array to store q items
-        private int current; // index of the current item
+        private Item[] items;            // the queue's array when the iterator was created
+        private int size;                // number of items to iterate over
+        private int removals;            // the queue's removal count when it was created
+        private int current;             // index of the current item
+        private SplittableRandom random; // generator for the shuffle
+        private int[] keys;              // swapped positions plus one, or 0 for empty slots
+        private int[] values;            // index held at each swapped position
+        private int stored;              // number of swapped positions stored
 
         // Constructs an iterator.
         public RandomQueueIterator() {
-            items = (Item[]) new Object[n];
-            for (int i = 0; i < n; i++) {
-                items[i] = q[i];
-            }
-            StdRandom.shuffle(items);
+            items = q;
+            size = n;
+            removals = ResizingArrayRandomQueue.this.removals;
             current = 0;
+            random = ResizingArrayRandomQueue.this.random.split();
+            keys = new int[16];
+            values = new int[16];
+            stored = 0;
         }
 
         // Returns true if there are more items to iterate, and false otherwise.
         public boolean hasNext() {
-            return n != current;
+            return size != current;
         }
 
         // Returns the next item.
@@ -105,7 +129,71 @@ public class ResizingArrayRandomQueue<Item> implements Iterable<Item> {
             if (!hasNext()) {
                 throw new NoSuchElementException("Iterator is empty");
             }
-            return items[current++];
+            if (removals != ResizingArrayRandomQueue.this.removals) {
+                throw new ConcurrentModificationException("Random queue changed");
+            }
+            // Swap position current with a random later one and return the index that lands at
+            // current; position current is never read again, so only the other one is stored.
+            int r = current + random.nextInt(size - current);
+            int index = indexAt(r);
+            if (r != current) {
+                put(r, indexAt(current));
+            }
+            current++;
+            return items[index];
+        }
+
+        // Returns the index held at position i of the virtual array.
+        private int indexAt(int i) {
+            int mask = keys.length - 1;
+            for (int h = hash(i) & mask; keys[h] != 0; h = (h + 1) & mask) {
+                if (keys[h] == i + 1) {
+                    return values[h];
+                }
+            }
+            return i;
+        }
+
+        // Sets position i of the virtual array to index.
+        private void put(int i, int index) {
+            int mask = keys.length - 1;
+            int h = hash(i) & mask;
+            while (keys[h] != 0 && keys[h] != i + 1) {
+                h = (h + 1) & mask;
+            }
+            if (keys[h] == 0) {
+                keys[h] = i + 1;
+                stored++;
+            }
+            values[h] = index;
+            if (2 * stored > keys.length) {
+                rehash();
+            }
+        }
+
+        // Doubles the hash table.
+        private void rehash() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[2 * oldKeys.length];
+            values = new int[2 * oldValues.length];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != 0) {
+                    int h = hash(oldKeys[j] - 1) & mask;
+                    while (keys[h] != 0) {
+                        h = (h + 1) & mask;
+                    }
+                    keys[h] = oldKeys[j];
+                    values[h] = oldValues[j];
+                }
+            }
+        }
+
+        // Returns a scrambled hash of i.
+        private int hash(int i) {
+            int h = i * 0x9e3779b9;
+            return h ^ (h >>> 16);
         }
     }
 
@@ -0,0 +1,486 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import dsa.LinkedStack;
+import stdlib.StdOut;
+import stdlib.StdRandom;
+
+// A data type to represent a text editor buffer, implemented using a rope: a balanced binary
+// tree whose leaves hold chunks of the text, each internal node knowing the length of the text
+// below it. The cursor is just a position, so moving it takes constant time, and inserting or
+// deleting at the cursor takes O(log n) time, however large the text.
+//
+// The nodes are immutable; an edit copies the leaf it changes and the path above it, and shares
+// the rest of the tree. The tree is kept height-balanced (as in an AVL tree). Since old versions
+// of the text stay intact, every edit can be undone and redone: the history keeps the old roots,
+// and each edit adds only O(log n) new nodes to it. A run of characters typed (or deleted) one at
+// a time at the same place is a single edit.
+public class RopeBuffer {
+    private static final int CHUNK = 256; // largest number of characters in a leaf
+
+    // Kinds of runs of single-character edits.
+    private static final int NONE = 0, TYPING = 1, DELETING = 2;
+
+    private Node root;                // the text, or null if it is empty
+    private int cursor;               // number of characters left of the cursor
+    private LinkedStack<State> undos; // states before the edits that can be undone
+    private LinkedStack<State> redos; // states before the edits that can be redone
+    private int run;                  // kind of the current run of single-character edits
+    private int runCursor;            // cursor position at which the current run continues
+
+    // Creates an empty buffer.
+    public RopeBuffer() {
+        root = null;
+        cursor = 0;
+        undos = new LinkedStack<State>();
+        redos = new LinkedStack<State>();
+        run = NONE;
+    }
+
+    // Inserts c at the cursor position.
+    public void insert(char c) {
+        if (run != TYPING || cursor != runCursor) {
+            save();
+            run = TYPING;
+        }
+        root = insert(root, cursor, new char[] { c }, 0, 1);
+        cursor++;
+        runCursor = cursor;
+    }
+
+    // Inserts the characters of s at the cursor position, leaving the cursor after them.
+    public void insert(CharSequence s) {
+        char[] chars = s.toString().toCharArray();
+        if (chars.length == 0) {
+            return;
+        }
+        save();
+        root = insert(root, cursor, chars, 0, chars.length);
+        cursor += chars.length;
+    }
+
+    // Deletes and returns the character immediately ahead of the cursor.
+    public char delete() {
+        if (cursor == size()) {
+            throw new NoSuchElementException("Nothing ahead of the cursor");
+        }
+        char c = charAt(root, cursor);
+        if (run != DELETING || cursor != runCursor) {
+            save();
+            run = DELETING;
+            runCursor = cursor;
+        }
+        root = delete(root, cursor, cursor + 1);
+        return c;
+    }
+
+    // Deletes and returns the k characters immediately ahead of the cursor.
+    public String delete(int k) {
+        if (k < 0 || k > size() - cursor) {
+            throw new NoSuchElementException("Cannot delete " + k + " characters");
+        }
+        if (k == 0) {
+            return "";
+        }
+        String deleted = substring(cursor, cursor + k);
+        save();
+        root = delete(root, cursor, cursor + k);
+        return deleted;
+    }
+
+    // Returns true if there is an edit to undo, and false otherwise.
+    public boolean canUndo() {
+        return !undos.isEmpty();
+    }
+
+    // Returns true if there is an undone edit to redo, and false otherwise.
+    public boolean canRedo() {
+        return !redos.isEmpty();
+    }
+
+    // Undoes the last edit, restoring the text and the cursor as they were before it.
+    public void undo() {
+        if (!canUndo()) {
+            throw new NoSuchElementException("Nothing to undo");
+        }
+        redos.push(new State(root, cursor));
+        restore(undos.pop());
+    }
+
+    // Redoes the last undone edit, restoring the text and the cursor as they were after it.
+    public void redo() {
+        if (!canRedo()) {
+            throw new NoSuchElementException("Nothing to redo");
+        }
+        undos.push(new State(root, cursor));
+        restore(redos.pop());
+    }
+
+    // Moves the cursor k positions to the left.
+    public void left(int k) {
+        if (k < 0 || k > cursor) {
+            throw new NoSuchElementException("Cannot move the cursor " + k + " to the left");
+        }
+        cursor -= k;
+    }
+
+    // Moves the cursor k positions to the right.
+    public void right(int k) {
+        if (k < 0 || k > size() - cursor) {
+            throw new NoSuchElementException("Cannot move the cursor " + k + " to the right");
+        }
+        cursor += k;
+    }
+
+    // Returns the number of characters in this buffer.
+    public int size() {
+        return length(root);
+    }
+
+    // Returns the position of the cursor (the number of characters left of it).
+    public int cursor() {
+        return cursor;
+    }
+
+    // Returns the characters at positions [from, to) of this buffer.
+    public String substring(int from, int to) {
+        if (from < 0 || to > size() || from > to) {
+            throw new IndexOutOfBoundsException("Illegal range [" + from + ", " + to + ")");
+        }
+        StringBuilder sb = new StringBuilder(to - from);
+        append(root, from, to, sb);
+        return sb.toString();
+    }
+
+    // Returns a string representation of the buffer with the "|" character (not part of the
+    // buffer) at the cursor position.
+    public String toString() {
+        StringBuilder sb = new StringBuilder(size() + 1);
+        append(root, 0, cursor, sb);
+        sb.append('|');
+        append(root, cursor, size(), sb);
+        return sb.toString();
+    }
+
+    // Records the current state as the one before a new edit, which cannot be redone past, and
+    // ends the current run of single-character edits.
+    private void save() {
+        undos.push(new State(root, cursor));
+        redos = new LinkedStack<State>();
+        run = NONE;
+    }
+
+    // Makes state the current one, and ends the current run of single-character edits.
+    private void restore(State state) {
+        root = state.root;
+        cursor = state.cursor;
+        run = NONE;
+    }
+
+    // A data type to represent a saved state of the buffer. Its rope shares all unchanged nodes
+    // with the other states.
+    private static class State {
+        private final Node root;  // the text
+        private final int cursor; // the cursor position
+
+        // Constructs a state.
+        State(Node root, int cursor) {
+            this.root = root;
+            this.cursor = cursor;
+        }
+    }
+
+    // A data type to represent a node of the rope: a leaf holding chars, or an internal node
+    // with two non-empty children.
+    private static class Node {
+        private final char[] chars; // the characters, for a leaf; null otherwise
+        private final Node left;    // the left child, for an internal node
+        private final Node right;   // the right child, for an internal node
+        private final int length;   // number of characters below this node
+        private final int height;   // height of this node, 0 for a leaf
+
+        // Constructs a leaf holding chars.
+        Node(char[] chars) {
+            this.chars = chars;
+            left = null;
+            right = null;
+            length = chars.length;
+            height = 0;
+        }
+
+        // Constructs an internal node with the given children.
+        Node(Node left, Node right) {
+            chars = null;
+            this.left = left;
+            this.right = right;
+            length = left.length + right.length;
+            height = 1 + Math.max(left.height, right.height);
+        }
+    }
+
+    // Returns the number of characters in t.
+    private static int length(Node t) {
+        return t == null ? 0 : t.length;
+    }
+
+    // Returns the height of t, -1 if it is empty.
+    private static int height(Node t) {
+        return t == null ? -1 : t.height;
+    }
+
+    // Returns the character at position i of t.
+    private static char charAt(Node t, int i) {
+        while (t.chars == null) {
+            if (i < t.left.length) {
+                t = t.left;
+            } else {
+                i -= t.left.length;
+                t = t.right;
+            }
+        }
+        return t.chars[i];
+    }
+
+    // Appends the characters at positions [from, to) of t to sb.
+    private static void append(Node t, int from, int to, StringBuilder sb) {
+        if (t == null || from >= to) {
+            return;
+        }
+        if (t.chars != null) {
+            sb.append(t.chars, from, to - from);
+            return;
+        }
+        int mid = t.left.length;
+        append(t.left, from, Math.min(to, mid), sb);
+        append(t.right, Math.max(from, mid) - mid, to - mid, sb);
+    }
+
+    // Returns a balanced rope holding s[off, off + len), or null if len is 0.
+    private static Node build(char[] s, int off, int len) {
+        if (len == 0) {
+            return null;
+        }
+        if (len <= CHUNK) {
+            char[] chars = new char[len];
+            System.arraycopy(s, off, chars, 0, len);
+            return new Node(chars);
+        }
+        int half = len / 2;
+        return concat(build(s, off, half), build(s, off + half, len - half));
+    }
+
+    // Returns the rope holding the text of a followed by that of b. Takes time proportional to
+    // the difference of their heights.
+    private static Node concat(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.chars != null && b.chars != null && a.length + b.length <= CHUNK) {
+            char[] chars = new char[a.length + b.length];
+            System.arraycopy(a.chars, 0, chars, 0, a.length);
+            System.arraycopy(b.chars, 0, chars, a.length, b.length);
+            return new Node(chars);
+        }
+        if (a.height > b.height + 1) {
+            return balance(a.left, concat(a.right, b));
+        }
+        if (b.height > a.height + 1) {
+            return balance(concat(a, b.left), b.right);
+        }
+        return new Node(a, b);
+    }
+
+    // Returns a node with children a and b, rotating if their heights differ by 2.
+    private static Node balance(Node a, Node b) {
+        if (a.height > b.height + 1) {
+            if (a.left.height >= a.right.height) {
+                return new Node(a.left, new Node(a.right, b));
+            }
+            Node m = a.right;
+            return new Node(new Node(a.left, m.left), new Node(m.right, b));
+        }
+        if (b.height > a.height + 1) {
+            if (b.right.height >= b.left.height) {
+                return new Node(new Node(a, b.left), b.right);
+            }
+            Node m = b.left;
+            return new Node(new Node(a, m.left), new Node(m.right, b.right));
+        }
+        return new Node(a, b);
+    }
+
+    // Returns t with s[off, off + len) inserted at position i.
+    private static Node insert(Node t, int i, char[] s, int off, int len) {
+        if (len == 0) {
+            return t;
+        }
+        if (t == null) {
+            return build(s, off, len);
+        }
+        if (t.chars != null) {
+            if (t.length + len <= CHUNK) {
+                char[] chars = new char[t.length + len];
+                System.arraycopy(t.chars, 0, chars, 0, i);
+                System.arraycopy(s, off, chars, i, len);
+                System.arraycopy(t.chars, i, chars, i + len, t.length - i);
+                return new Node(chars);
+            }
+            Node before = build(t.chars, 0, i);
+            Node after = build(t.chars, i, t.length - i);
+            return concat(concat(before, build(s, off, len)), after);
+        }
+        if (i <= t.left.length) {
+            return concat(insert(t.left, i, s, off, len), t.right);
+        }
+        return concat(t.left, insert(t.right, i - t.left.length, s, off, len));
+    }
+
+    // Returns t with the characters at positions [from, to) removed, or null if none are left.
+    private static Node delete(Node t, int from, int to) {
+        if (t == null || from >= to) {
+            return t;
+        }
+        if (from == 0 && to == t.length) {
+            return null;
+        }
+        if (t.chars != null) {
+            char[] chars = new char[t.length - (to - from)];
+            System.arraycopy(t.chars, 0, chars, 0, from);
+            System.arraycopy(t.chars, to, chars, from, t.length - to);
+            return new Node(chars);
+        }
+        int mid = t.left.length;
+        Node left = from < mid ? delete(t.left, from, Math.min(to, mid)) : t.left;
+        Node right = to > mid ? delete(t.right, Math.max(from, mid) - mid, to - mid) : t.right;
+        return concat(left, right);
+    }
+
+    // Returns true if t is height-balanced, with correct heights and lengths and with leaves of
+    // 1 to CHUNK characters, and false otherwise.
+    private static boolean isBalanced(Node t) {
+        if (t == null) {
+            return true;
+        }
+        if (t.chars != null) {
+            return t.height == 0 && t.length == t.chars.length && t.length >= 1
+                    && t.length <= CHUNK;
+        }
+        return isBalanced(t.left) && isBalanced(t.right)
+                && Math.abs(t.left.height - t.right.height) <= 1
+                && t.height == 1 + Math.max(t.left.height, t.right.height)
+                && t.length == t.left.length + t.right.length;
+    }
+
+    // Unit tests the data type.
+    public static void main(String[] args) {
+        RopeBuffer buf = new RopeBuffer();
+        String s = "There is grandeur in this view of life, with its several powers, having been " +
+                "originally breathed into a few forms or into one; and that, whilst this planet " +
+                "has gone cycling on according to the fixed law of gravity, from so simple a " +
+                "beginning endless forms most beautiful and most wonderful have been, and are " +
+                "being, evolved. ~ Charles Darwin, The Origin of Species";
+        for (int i = 0; i < s.length(); i++) {
+            buf.insert(s.charAt(i));
+        }
+        buf.left(buf.size());
+        buf.right(97);
+        s = "by the Creator ";
+        for (int i = 0; i < s.length(); i++) {
+            buf.insert(s.charAt(i));
+        }
+        buf.right(228);
+        buf.delete();
+        buf.insert('-');
+        buf.insert('-');
+        buf.left(342);
+        StdOut.println(buf);
+
+        // Make random edits to a rope and to a Buffer, and check that they agree and that the
+        // tree stays balanced.
+        RopeBuffer rope = new RopeBuffer();
+        Buffer model = new Buffer();
+        boolean agree = true;
+        for (int t = 0; t < 20000; t++) {
+            int op = StdRandom.uniform(10);
+            if (op < 6) {
+                char c = (char) ('a' + StdRandom.uniform(26));
+                rope.insert(c);
+                model.insert(c);
+            } else if (op < 7) {
+                if (rope.cursor() < rope.size()) {
+                    agree &= rope.delete() == model.delete();
+                }
+            } else if (op < 8) {
+                int k = StdRandom.uniform(Math.min(rope.cursor(), 100) + 1);
+                rope.left(k);
+                model.left(k);
+            } else {
+                int k = StdRandom.uniform(Math.min(rope.size() - rope.cursor(), 100) + 1);
+                rope.right(k);
+                model.right(k);
+            }
+            if (t % 500 == 0) {
+                agree &= rope.toString().equals(model.toString()) && isBalanced(rope.root);
+            }
+        }
+        agree &= rope.toString().equals(model.toString()) && isBalanced(rope.root);
+        StdOut.println("agrees with Buffer and stays balanced? " + agree);
+
+        // Bulk edits, and a substring on both sides of the cursor.
+        RopeBuffer text = new RopeBuffer();
+        text.insert("hello world");
+        text.left(5);
+        boolean bulk = text.delete(5).equals("world");
+        text.insert(new StringBuilder("there"));
+        text.left(7);
+        bulk &= text.toString().equals("hell|o there") && text.substring(2, 9).equals("llo the");
+        StdOut.println("bulk insert, delete and substring work? " + bulk);
+
+        // A run of typing is undone in one step, and redone the same way; edits that change
+        // nothing are not recorded.
+        RopeBuffer typed = new RopeBuffer();
+        typed.insert("one ");
+        for (char c : "two".toCharArray()) {
+            typed.insert(c);
+        }
+        typed.insert("");
+        typed.delete(0);
+        typed.undo();
+        boolean history = typed.toString().equals("one |") && typed.canRedo();
+        typed.redo();
+        history &= typed.toString().equals("one two|") && !typed.canRedo();
+        typed.undo();
+        typed.undo();
+        history &= typed.toString().equals("|") && !typed.canUndo();
+
+        // Undo a random sequence of bulk edits one at a time, then redo them all.
+        RopeBuffer edited = new RopeBuffer();
+        String[] before = new String[1000];
+        for (int t = 0; t < before.length; t++) {
+            before[t] = edited.toString();
+            int ahead = edited.size() - edited.cursor();
+            if (StdRandom.bernoulli(0.3) && ahead > 0) {
+                edited.delete(1 + StdRandom.uniform(Math.min(ahead, 50)));
+            } else {
+                char[] chars = new char[1 + StdRandom.uniform(300)];
+                Arrays.fill(chars, (char) ('a' + t % 26));
+                edited.insert(new String(chars));
+            }
+            edited.left(StdRandom.uniform(edited.cursor() + 1));
+        }
+        String after = edited.toString();
+        for (int t = before.length - 1; t >= 0; t--) {
+            edited.undo();
+            history &= edited.toString().equals(before[t]);
+        }
+        while (edited.canRedo()) {
+            edited.redo();
+        }
+        // Cursor moves are not edits, so only the text is compared.
+        history &= edited.substring(0, edited.size()).equals(after.replace("|", ""));
+        StdOut.println("undo and redo restore every state? " + history);
+    }
+}
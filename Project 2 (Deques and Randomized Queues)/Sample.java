@@ -1,31 +1,188 @@
+import java.util.SplittableRandom;
 
+import stdlib.StdIn;
 import stdlib.StdOut;
 
+// Samples k values from the range [lo, hi], or k strings from standard input, in random order.
+// The range is never materialized, so memory is O(k) however wide the range is.
+//
+//   java Sample lo hi k +   k values drawn with replacement
+//   java Sample lo hi k -   k distinct values (Floyd's algorithm)
+//   java Sample lo hi k ~   k distinct values, streamed in O(1) memory (Feistel permutation)
+//   java Sample k           k distinct strings from standard input (reservoir sampling)
 public class Sample {
+    // Number of Feistel rounds.
+    private static final int ROUNDS = 4;
+
     // Entry point.
     public static void main(String[] args) {
-        int lo = Integer.parseInt(args[0]);
-        int hi = Integer.parseInt(args[1]);
+        SplittableRandom random = new SplittableRandom();
+        if (args.length == 1) {
+            int k = Integer.parseInt(args[0]);
+            for (String s : reservoir(k, random)) {
+                StdOut.println(s);
+            }
+            return;
+        }
+        long lo = Long.parseLong(args[0]);
+        long hi = Long.parseLong(args[1]);
         int k = Integer.parseInt(args[2]);
         String mode = args[3];
 
-        ResizingArrayRandomQueue<Integer> q = new ResizingArrayRandomQueue<Integer>();
-
-        if (!((mode.equals("+")) || (mode.equals("-")))) {
+        if (!((mode.equals("+")) || (mode.equals("-")) || (mode.equals("~")))) {
             throw new IllegalArgumentException("Illegal mode");
         }
-        for (int i = lo; i <= hi; i++) {
-            q.enqueue(i);
+        if (hi < lo) {
+            throw new IllegalArgumentException("Illegal range");
+        }
+        long n = hi - lo + 1; // size of the range, as an unsigned number (0 meaning 2^64)
+        if (n <= 0 && !mode.equals("+")) {
+            throw new IllegalArgumentException("Range too wide for mode " + mode);
+        }
+        if (k < 0 || !mode.equals("+") && k > n) {
+            throw new IllegalArgumentException("Illegal k");
         }
         if (mode.equals("+")) {
             for (int j = 0; j < k; j++) {
-                StdOut.println(q.sample());
+                StdOut.println(lo + draw(n, random));
             }
         }
         if (mode.equals("-")) {
+            for (long offset : floyd(n, k, random)) {
+                StdOut.println(lo + offset);
+            }
+        }
+        if (mode.equals("~")) {
+            long[] keys = new long[ROUNDS];
+            for (int r = 0; r < ROUNDS; r++) {
+                keys[r] = random.nextLong();
+            }
             for (int j = 0; j < k; j++) {
-                StdOut.println(q.dequeue());
+                StdOut.println(lo + permute(j, n, keys));
+            }
+        }
+    }
+
+    // Returns a value drawn uniformly from [0, n), where n is unsigned and 0 stands for 2^64.
+    // Spans of 2^63 or more do not fit in a long, so they draw whole longs, rejecting those past
+    // n, which happens less than half the time.
+    private static long draw(long n, SplittableRandom random) {
+        if (n > 0) {
+            return random.nextLong(n);
+        }
+        long x = random.nextLong();
+        while (n != 0 && Long.compareUnsigned(x, n) >= 0) {
+            x = random.nextLong();
+        }
+        return x;
+    }
+
+    // Returns k distinct values drawn uniformly from [0, n), in random order, using Floyd's
+    // algorithm: for j = n - k to n - 1, pick t in [0, j] and take t, or j if t was taken.
+    private static long[] floyd(long n, int k, SplittableRandom random) {
+        long[] chosen = new long[k];
+        long[] set = new long[Integer.highestOneBit(Math.max(1, 2 * k - 1)) * 2]; // value + 1
+        int mask = set.length - 1;
+        int m = 0;
+        for (long j = n - k; j < n; j++) {
+            long t = random.nextLong(j + 1);
+            if (!insert(set, mask, t)) {
+                t = j;
+                insert(set, mask, t);
+            }
+            chosen[m++] = t;
+        }
+
+        // Floyd's order is not uniformly random, so shuffle.
+        for (int i = k - 1; i > 0; i--) {
+            int r = random.nextInt(i + 1);
+            long swap = chosen[i];
+            chosen[i] = chosen[r];
+            chosen[r] = swap;
+        }
+        return chosen;
+    }
+
+    // Adds x to the open-addressing hash set, and returns true if it was not already there.
+    private static boolean insert(long[] set, int mask, long x) {
+        int h = (int) mix(x) & mask;
+        while (set[h] != 0) {
+            if (set[h] == x + 1) {
+                return false;
+            }
+            h = (h + 1) & mask;
+        }
+        set[h] = x + 1;
+        return true;
+    }
+
+    // Returns the image of i under a pseudo-random permutation of [0, n) determined by keys. A
+    // balanced Feistel network permutes [0, 4^h) for the smallest 4^h >= n, and values that land
+    // outside [0, n) are mapped again until they land inside (cycle walking), which takes fewer
+    // than four passes through the network on average.
+    private static long permute(long i, long n, long[] keys) {
+        int bits = 64 - Long.numberOfLeadingZeros(Math.max(1, n - 1));
+        int half = (bits + 1) / 2;
+        long mask = (1L << half) - 1;
+        long x = i;
+        do {
+            long left = x >>> half;
+            long right = x & mask;
+            for (long key : keys) {
+                long next = left ^ (mix(right ^ key) & mask);
+                left = right;
+                right = next;
+            }
+            x = left << half | right;
+        } while (Long.compareUnsigned(x, n) >= 0);
+        return x;
+    }
+
+    // Returns k strings drawn uniformly without replacement from standard input (all of them, if
+    // there are fewer), in random order. Uses Li's Algorithm L, which computes how many strings to
+    // skip before the next replacement instead of drawing a number per string.
+    private static String[] reservoir(int k, SplittableRandom random) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Illegal k");
+        }
+        String[] sample = new String[k];
+        int m = 0;
+        while (m < k && !StdIn.isEmpty()) {
+            sample[m++] = StdIn.readString();
+        }
+        if (m == k && k > 0) {
+            double w = Math.exp(Math.log(1.0 - random.nextDouble()) / k);
+            while (true) {
+                long skip = (long) (Math.log(1.0 - random.nextDouble()) / Math.log(1 - w));
+                while (skip > 0 && !StdIn.isEmpty()) {
+                    StdIn.readString();
+                    skip--;
+                }
+                if (StdIn.isEmpty()) {
+                    break;
+                }
+                sample[random.nextInt(k)] = StdIn.readString();
+                w *= Math.exp(Math.log(1.0 - random.nextDouble()) / k);
             }
         }
+        for (int i = m - 1; i > 0; i--) {
+            int r = random.nextInt(i + 1);
+            String swap = sample[i];
+            sample[i] = sample[r];
+            sample[r] = swap;
+        }
+        if (m < k) {
+            String[] fewer = new String[m];
+            System.arraycopy(sample, 0, fewer, 0, m);
+            return fewer;
+        }
+        return sample;
+    }
+
+    // Returns a scrambled version of x (Stafford's variant 13 of the MurmurHash3 finalizer).
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
     }
 }
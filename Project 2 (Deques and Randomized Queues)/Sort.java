@@ -1,11 +1,36 @@
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
 import dsa.LinkedStack;
 
 import stdlib.StdIn;
 import stdlib.StdOut;
 
+// Sorts the words from standard input. By default the words are read into memory and sorted
+// with StringSort. With -x [megabytes], sorts externally, in runs of about that many megabytes
+// spilled to temporary files, so the input may be larger than memory. With -d, inserts the words
+// one at a time into a sorted deque, which takes quadratic time.
 public class Sort {
     // Entry point.
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("-x")) {
+            long megabytes = args.length > 1 ? Long.parseLong(args[1])
+                    : ExternalSort.DEFAULT_MEMORY >> 20;
+            ExternalSort.sort(new InputStreamReader(System.in, StandardCharsets.UTF_8),
+                    new OutputStreamWriter(System.out, StandardCharsets.UTF_8), megabytes << 20,
+                    null);
+            return;
+        }
+        if (args.length == 0 || !args[0].equals("-d")) {
+            String[] words = StdIn.readAllStrings();
+            StringSort.sort(words);
+            for (String w : words) {
+                StdOut.println(w);
+            }
+            return;
+        }
         LinkedDeque<String> dDeque = new LinkedDeque<String>();
         while (!StdIn.isEmpty()) {
             String w = StdIn.readString();
@@ -0,0 +1,271 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import stdlib.StdOut;
+
+// A library for sorting strings in the order of String.compareTo(), using 3-way string
+// quicksort (multikey quicksort). Each partitioning step looks at a single character position,
+// so a shared prefix is examined once instead of in every comparison.
+//
+// The characters of all the strings are first copied into one char[] arena, and an int
+// permutation is sorted instead of the strings, so the inner loops touch only primitive arrays.
+// Small subarrays are finished with insertion sort, and large ones are split across the common
+// fork-join pool.
+public class StringSort {
+    // Subarrays at most this long are sorted with insertion sort.
+    private static final int INSERTION_CUTOFF = 12;
+
+    // Subarrays at least this long are partitioned in their own fork-join task.
+    private static final int PARALLEL_CUTOFF = 1 << 13;
+
+    // Not instantiable.
+    private StringSort() {
+    }
+
+    // Sorts a in the order of String.compareTo().
+    public static void sort(String[] a) {
+        sort(a, 0, a.length);
+    }
+
+    // Sorts a[lo, hi) in the order of String.compareTo().
+    public static void sort(String[] a, int lo, int hi) {
+        int n = hi - lo;
+        long chars = 0;
+        for (int i = lo; i < hi; i++) {
+            chars += a[i].length();
+        }
+        if (chars > Integer.MAX_VALUE - 8) {
+            // Too many characters for one arena.
+            Arrays.parallelSort(a, lo, hi);
+            return;
+        }
+        char[] arena = new char[(int) chars];
+        int[] start = new int[n];
+        int[] length = new int[n];
+        int[] perm = new int[n];
+        int pos = 0;
+        for (int i = 0; i < n; i++) {
+            String s = a[lo + i];
+            s.getChars(0, s.length(), arena, pos);
+            start[i] = pos;
+            length[i] = s.length();
+            perm[i] = i;
+            pos += s.length();
+        }
+        Sorter sorter = new Sorter(arena, start, length, perm, 0, n, 0);
+        if (n >= PARALLEL_CUTOFF) {
+            ForkJoinPool.commonPool().invoke(sorter);
+        } else {
+            sorter.compute();
+        }
+        String[] sorted = new String[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = a[lo + perm[i]];
+        }
+        System.arraycopy(sorted, 0, a, lo, n);
+    }
+
+    // A fork-join task that sorts perm[lo, hi), all of whose strings agree on their first d
+    // characters.
+    private static class Sorter extends RecursiveAction {
+        private char[] arena; // the characters of all the strings
+        private int[] start;  // start[i] is the position of string i in arena
+        private int[] length; // length[i] is the length of string i
+        private int[] perm;   // the permutation being sorted
+        private int lo;       // first index (inclusive)
+        private int hi;       // last index (exclusive)
+        private int d;        // character position to partition on
+        private int lt;       // start of the middle part of the last partition
+        private int gt;       // end of the middle part of the last partition
+
+        // Constructs a task for perm[lo, hi) at position d.
+        Sorter(char[] arena, int[] start, int[] length, int[] perm, int lo, int hi, int d) {
+            this.arena = arena;
+            this.start = start;
+            this.length = length;
+            this.perm = perm;
+            this.lo = lo;
+            this.hi = hi;
+            this.d = d;
+        }
+
+        // Sorts the subarray, forking the large outer parts and looping on the middle one, so
+        // a long shared prefix costs no stack depth.
+        protected void compute() {
+            int lo = this.lo;
+            int hi = this.hi;
+            int d = this.d;
+            ArrayList<Sorter> forked = new ArrayList<Sorter>();
+            while (hi - lo >= PARALLEL_CUTOFF) {
+                int v = partition(lo, hi, d);
+                int lt = this.lt;
+                int gt = this.gt;
+                fork(lo, lt, d, forked);
+                fork(gt, hi, d, forked);
+                if (v < 0) {
+                    // The strings of the middle part all end at d, so they are equal.
+                    lo = hi;
+                    break;
+                }
+                lo = lt;
+                hi = gt;
+                d++;
+            }
+            sequential(lo, hi, d);
+            for (int i = forked.size() - 1; i >= 0; i--) {
+                forked.get(i).join();
+            }
+        }
+
+        // Sorts perm[lo, hi) at position d: in a forked task, added to forked, if it is large,
+        // and right away otherwise.
+        private void fork(int lo, int hi, int d, ArrayList<Sorter> forked) {
+            if (hi - lo < PARALLEL_CUTOFF) {
+                sequential(lo, hi, d);
+                return;
+            }
+            Sorter task = new Sorter(arena, start, length, perm, lo, hi, d);
+            task.fork();
+            forked.add(task);
+        }
+
+        // Sorts perm[lo, hi) at position d without forking, recursing on the outer parts and
+        // looping on the middle one.
+        private void sequential(int lo, int hi, int d) {
+            while (hi - lo > INSERTION_CUTOFF) {
+                int v = partition(lo, hi, d);
+                int lt = this.lt;
+                int gt = this.gt;
+                sequential(lo, lt, d);
+                sequential(gt, hi, d);
+                if (v < 0) {
+                    return;
+                }
+                lo = lt;
+                hi = gt;
+                d++;
+            }
+            insertion(lo, hi, d);
+        }
+
+        // Partitions perm[lo, hi) on the character at position d into the strings whose
+        // character is less than, equal to and greater than the pivot's, sets [lt, gt) to the
+        // middle part, and returns the pivot. A character of -1 means the string has ended.
+        private int partition(int lo, int hi, int d) {
+            int v = pivot(lo, hi, d);
+            int lt = lo;
+            int gt = hi - 1;
+            int i = lo;
+            while (i <= gt) {
+                int t = charAt(perm[i], d);
+                if (t < v) {
+                    swap(lt++, i++);
+                } else if (t > v) {
+                    swap(i, gt--);
+                } else {
+                    i++;
+                }
+            }
+            this.lt = lt;
+            this.gt = gt + 1;
+            return v;
+        }
+
+        // Returns the median of the characters at position d of three strings of perm[lo, hi).
+        private int pivot(int lo, int hi, int d) {
+            int a = charAt(perm[lo], d);
+            int b = charAt(perm[(lo + hi) >>> 1], d);
+            int c = charAt(perm[hi - 1], d);
+            if (a < b) {
+                return b < c ? b : Math.max(a, c);
+            }
+            return a < c ? a : Math.max(b, c);
+        }
+
+        // Sorts perm[lo, hi), all of whose strings agree on their first d characters.
+        private void insertion(int lo, int hi, int d) {
+            for (int i = lo + 1; i < hi; i++) {
+                int p = perm[i];
+                int j = i;
+                while (j > lo && less(p, perm[j - 1], d)) {
+                    perm[j] = perm[j - 1];
+                    j--;
+                }
+                perm[j] = p;
+            }
+        }
+
+        // Returns true if string v is less than string w, both agreeing on their first d
+        // characters.
+        private boolean less(int v, int w, int d) {
+            int sv = start[v];
+            int sw = start[w];
+            int n = Math.min(length[v], length[w]);
+            for (int i = d; i < n; i++) {
+                char cv = arena[sv + i];
+                char cw = arena[sw + i];
+                if (cv != cw) {
+                    return cv < cw;
+                }
+            }
+            return length[v] < length[w];
+        }
+
+        // Returns the character at position d of string s, or -1 if s is no longer than d.
+        private int charAt(int s, int d) {
+            return d < length[s] ? arena[start[s] + d] : -1;
+        }
+
+        // Exchanges perm[i] and perm[j].
+        private void swap(int i, int j) {
+            int t = perm[i];
+            perm[i] = perm[j];
+            perm[j] = t;
+        }
+    }
+
+    // Unit tests the library on n random strings with long shared prefixes.
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        SplittableRandom random = new SplittableRandom(210);
+        String[] prefixes = {"", "http://www.example.com/", "http://www.example.com/index/",
+                "\ud83d\ude00", "\uffff"};
+        String[] a = new String[n];
+        for (int i = 0; i < n; i++) {
+            StringBuilder sb = new StringBuilder(prefixes[random.nextInt(prefixes.length)]);
+            int len = random.nextInt(10);
+            for (int j = 0; j < len; j++) {
+                int r = random.nextInt(30);
+                sb.append(r < 26 ? (char) ('a' + r) : "\u00e9\ud83d\ude00\uff5a".charAt(r - 26));
+            }
+            a[i] = sb.toString();
+        }
+        String[] b = a.clone();
+        long start = System.nanoTime();
+        sort(a);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        start = System.nanoTime();
+        Arrays.sort(b);
+        double reference = (System.nanoTime() - start) / 1e9;
+        StdOut.printf("sort(): %.3f s, Arrays.sort(): %.3f s\n", elapsed, reference);
+        StdOut.println("same order as compareTo()? " + Arrays.equals(a, b));
+
+        // Many long duplicates: every partition leaves almost all the strings in the middle part,
+        // one character further on.
+        String xs = "x".repeat(10000);
+        a = new String[10000];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = i % 2 == 0 ? xs : xs + "y";
+        }
+        b = a.clone();
+        start = System.nanoTime();
+        sort(a);
+        elapsed = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(b);
+        StdOut.printf("long duplicates: %.3f s, same order as compareTo()? %s\n", elapsed,
+                Arrays.equals(a, b));
+    }
+}
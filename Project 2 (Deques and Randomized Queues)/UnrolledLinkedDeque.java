@@ -0,0 +1,238 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import stdlib.StdOut;
+import stdlib.StdRandom;
+
+// A data type to represent a double-ended queue (aka deque), implemented using a doubly-linked
+// list of fixed-size array blocks (an unrolled linked list) as the underlying data structure.
+//
+// The deque grows by linking in a new block at either end, so items never move once added. An
+// iterator therefore stays valid while items are added to either end: it sees every item that
+// was in the deque when it was created, plus any item added to the back before it gets there.
+// Removing items while iterating is not supported.
+public class UnrolledLinkedDeque<Item> implements Iterable<Item> {
+    private static final int BLOCK = 64; // number of items per block
+
+    private Block first; // block holding the front of the deque
+    private Block last;  // block holding the back of the deque
+    private int head;    // index of the front item in first
+    private int tail;    // index one past the back item in last
+    private int n;       // size of the deque
+
+    // Constructs an empty deque.
+    public UnrolledLinkedDeque() {
+        first = new Block();
+        last = first;
+        head = BLOCK / 2;
+        tail = BLOCK / 2;
+        n = 0;
+    }
+
+    // Returns true if this deque is empty, and false otherwise.
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    // Returns the number of items in this deque.
+    public int size() {
+        return n;
+    }
+
+    // Adds item to the front of this deque.
+    public void addFirst(Item item) {
+        if (item == null) {
+            throw new NullPointerException("item is null");
+        }
+        if (head == 0) {
+            Block block = new Block();
+            block.next = first;
+            first.prev = block;
+            first = block;
+            head = BLOCK;
+        }
+        first.items[--head] = item;
+        n++;
+    }
+
+    // Adds item to the back of this deque.
+    public void addLast(Item item) {
+        if (item == null) {
+            throw new NullPointerException("item is null");
+        }
+        if (tail == BLOCK) {
+            Block block = new Block();
+            block.prev = last;
+            last.next = block;
+            last = block;
+            tail = 0;
+        }
+        last.items[tail++] = item;
+        n++;
+    }
+
+    // Returns the item at the front of this deque.
+    @SuppressWarnings("unchecked")
+    public Item peekFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        return (Item) first.items[head];
+    }
+
+    // Removes and returns the item at the front of this deque.
+    @SuppressWarnings("unchecked")
+    public Item removeFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        Item item = (Item) first.items[head];
+        first.items[head++] = null; // avoid loitering
+        n--;
+        if (n == 0) {
+            recenter();
+        } else if (head == BLOCK) {
+            first = first.next;
+            first.prev = null;
+            head = 0;
+        }
+        return item;
+    }
+
+    // Returns the item at the back of this deque.
+    @SuppressWarnings("unchecked")
+    public Item peekLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        return (Item) last.items[tail - 1];
+    }
+
+    // Removes and returns the item at the back of this deque.
+    @SuppressWarnings("unchecked")
+    public Item removeLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        Item item = (Item) last.items[--tail];
+        last.items[tail] = null; // avoid loitering
+        n--;
+        if (n == 0) {
+            recenter();
+        } else if (tail == 0) {
+            last = last.prev;
+            last.next = null;
+            tail = BLOCK;
+        }
+        return item;
+    }
+
+    // Returns an iterator to iterate over the items in this deque from front to back.
+    public Iterator<Item> iterator() {
+        return new DequeIterator();
+    }
+
+    // Returns a string representation of this deque.
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Item item : this) {
+            sb.append(item);
+            sb.append(", ");
+        }
+        return n > 0 ? "[" + sb.substring(0, sb.length() - 2) + "]" : "[]";
+    }
+
+    // Resets an empty deque to a single block, positioned in the middle so that it can grow in
+    // either direction before a new block is needed.
+    private void recenter() {
+        first = last;
+        first.prev = null;
+        head = BLOCK / 2;
+        tail = BLOCK / 2;
+    }
+
+    // A data type to represent a block of the list.
+    private static class Block {
+        private Object[] items = new Object[BLOCK]; // the items
+        private Block next;                         // the next block
+        private Block prev;                         // the previous block
+    }
+
+    // A deque iterator.
+    private class DequeIterator implements Iterator<Item> {
+        private Block block; // block holding the next item
+        private int i;       // index of the next item in block
+
+        // Constructs an iterator.
+        public DequeIterator() {
+            block = first;
+            i = head;
+        }
+
+        // Returns true if there are more items to iterate, and false otherwise.
+        public boolean hasNext() {
+            if (i == BLOCK && block.next != null) {
+                block = block.next;
+                i = 0;
+            }
+            return block != last || i < tail;
+        }
+
+        // Returns the next item.
+        @SuppressWarnings("unchecked")
+        public Item next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("Iterator is empty");
+            }
+            return (Item) block.items[i++];
+        }
+    }
+
+    // Unit tests the data type.
+    public static void main(String[] args) {
+        UnrolledLinkedDeque<Character> deque = new UnrolledLinkedDeque<Character>();
+        String quote = "There is grandeur in this view of life, with its several powers, having " +
+                "been originally breathed into a few forms or into one; and that, whilst this " +
+                "planet has gone cycling on according to the fixed law of gravity, from so simple" +
+                " a beginning endless forms most beautiful and most wonderful have been, and are " +
+                "being, evolved. ~ Charles Darwin, The Origin of Species";
+        int r = StdRandom.uniform(0, quote.length());
+        StdOut.println("Filling the deque...");
+        for (int i = quote.substring(0, r).length() - 1; i >= 0; i--) {
+            deque.addFirst(quote.charAt(i));
+        }
+        for (int i = 0; i < quote.substring(r).length(); i++) {
+            deque.addLast(quote.charAt(r + i));
+        }
+        StdOut.printf("The deque (%d characters): ", deque.size());
+        for (char c : deque) {
+            StdOut.print(c);
+        }
+        StdOut.println();
+        StdOut.println("Emptying the deque...");
+        double s = StdRandom.uniform();
+        for (int i = 0; i < quote.length(); i++) {
+            if (StdRandom.bernoulli(s)) {
+                deque.removeFirst();
+            } else {
+                deque.removeLast();
+            }
+        }
+        StdOut.println("deque.isEmpty()? " + deque.isEmpty());
+
+        // Doubles a deque of integers while iterating over it.
+        UnrolledLinkedDeque<Integer> numbers = new UnrolledLinkedDeque<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            numbers.addLast(i);
+        }
+        int seen = 0;
+        for (int x : numbers) {
+            if (x < 1000) {
+                numbers.addLast(x + 1000);
+                numbers.addFirst(-1);
+            }
+            seen++;
+        }
+        StdOut.printf("Iterated over %d of %d items while growing\n", seen, numbers.size());
+    }
+}
@@ -0,0 +1,436 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+import stdlib.StdOut;
+
+// A data type to represent a weighted random queue, in which sample() and dequeue() pick each
+// item with probability proportional to its weight. It is implemented using resizing arrays of
+// items and weights, with a Fenwick tree (binary indexed tree) of the weights on top, so that
+// every operation takes O(log n) time.
+//
+// Items must be distinct, since updateWeight() looks them up, and weights must be positive and
+// finite. For frozen weights, snapshot() returns an alias table that samples in constant time.
+public class WeightedRandomQueue<Item> implements Iterable<Item> {
+    private Item[] q;                        // array to store the items
+    private double[] w;                      // w[i] is the weight of q[i]
+    private double[] tree;                   // Fenwick tree over w, 1-based
+    private int n;                           // size of the queue
+    private HashMap<Item, Integer> index;    // index of each item in q
+    private SplittableRandom random;         // this queue's random number generator
+    private int updates;                     // weight changes since the tree was rebuilt
+
+    // Constructs an empty weighted random queue.
+    public WeightedRandomQueue() {
+        this(new SplittableRandom());
+    }
+
+    // Constructs an empty weighted random queue whose random choices are determined by seed.
+    public WeightedRandomQueue(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    // Constructs an empty weighted random queue using the given generator.
+    @SuppressWarnings("unchecked")
+    private WeightedRandomQueue(SplittableRandom random) {
+        q = (Item[]) new Object[2];
+        w = new double[2];
+        tree = new double[3];
+        n = 0;
+        index = new HashMap<Item, Integer>();
+        this.random = random;
+        updates = 0;
+    }
+
+    // Returns true if this queue is empty, and false otherwise.
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    // Returns the number of items in this queue.
+    public int size() {
+        return n;
+    }
+
+    // Returns true if this queue contains item, and false otherwise.
+    public boolean contains(Item item) {
+        return index.containsKey(item);
+    }
+
+    // Returns the weight of item.
+    public double weight(Item item) {
+        return w[indexOf(item)];
+    }
+
+    // Returns the sum of the weights of the items in this queue.
+    public double totalWeight() {
+        return prefix(n);
+    }
+
+    // Adds item to this queue with the given weight.
+    public void enqueue(Item item, double weight) {
+        if (item == null) {
+            throw new NullPointerException("item is null");
+        }
+        checkWeight(weight);
+        if (index.containsKey(item)) {
+            throw new IllegalArgumentException("item is already in the queue");
+        }
+        if (q.length == n) {
+            resize(2 * n);
+        }
+        q[n] = item;
+        w[n] = weight;
+        index.put(item, n);
+        add(n, weight);
+        n++;
+    }
+
+    // Changes the weight of item.
+    public void updateWeight(Item item, double weight) {
+        checkWeight(weight);
+        int i = indexOf(item);
+        add(i, weight - w[i]);
+        w[i] = weight;
+        countUpdate();
+    }
+
+    // Returns a random item from this queue, chosen in proportion to the weights.
+    public Item sample() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Random queue is empty");
+        }
+        return q[select()];
+    }
+
+    // Removes and returns a random item from this queue, chosen in proportion to the weights.
+    public Item dequeue() {
+        if (isEmpty()) {
+            throw new NoSuchElementException("Random queue is empty");
+        }
+        int r = select();
+        Item item = q[r];
+        index.remove(item);
+
+        // Move the last item into slot r.
+        int last = n - 1;
+        if (r != last) {
+            add(r, w[last] - w[r]);
+            q[r] = q[last];
+            w[r] = w[last];
+            index.put(q[r], r);
+        }
+        add(last, -w[last]);
+        q[last] = null;
+        w[last] = 0;
+        n--;
+        countUpdate();
+        if (n > 0 && n == q.length / 4) {
+            resize(q.length / 2);
+        }
+        return item;
+    }
+
+    // Returns an independent iterator over the items in this queue in weighted random order:
+    // each next item is drawn in proportion to the weights among the items not yet returned.
+    public Iterator<Item> iterator() {
+        return new WeightedIterator();
+    }
+
+    // Returns an immutable snapshot of this queue that samples in constant time.
+    public Snapshot<Item> snapshot() {
+        return new Snapshot<Item>(q, w, n, random.split());
+    }
+
+    // Returns a string representation of this queue.
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append(q[i]).append("=").append(w[i]);
+            if (i < n - 1) {
+                sb.append(", ");
+            }
+        }
+        return "[" + sb + "]";
+    }
+
+    // An immutable weighted sampler built with Vose's alias method: each of the n slots holds a
+    // probability and an alias, and a sample picks a slot uniformly and then either the slot's
+    // own item or its alias.
+    public static class Snapshot<Item> {
+        private Item[] items;            // the items
+        private double[] prob;           // probability of keeping slot i's own item
+        private int[] alias;             // item taken instead of slot i's own
+        private SplittableRandom random; // this snapshot's random number generator
+
+        // Constructs a sampler over items[0, n) with the given weights.
+        @SuppressWarnings("unchecked")
+        private Snapshot(Item[] q, double[] w, int n, SplittableRandom random) {
+            items = (Item[]) new Object[n];
+            System.arraycopy(q, 0, items, 0, n);
+            prob = new double[n];
+            alias = new int[n];
+            this.random = random;
+            double total = 0;
+            for (int i = 0; i < n; i++) {
+                total += w[i];
+            }
+
+            // Scale the weights to average 1, then pair each small slot with a large item that
+            // tops it up to 1.
+            double[] scaled = new double[n];
+            int[] small = new int[n];
+            int[] large = new int[n];
+            int s = 0;
+            int l = 0;
+            for (int i = 0; i < n; i++) {
+                scaled[i] = w[i] * n / total;
+                if (scaled[i] < 1) {
+                    small[s++] = i;
+                } else {
+                    large[l++] = i;
+                }
+            }
+            while (s > 0 && l > 0) {
+                int less = small[--s];
+                int more = large[--l];
+                prob[less] = scaled[less];
+                alias[less] = more;
+                scaled[more] = (scaled[more] + scaled[less]) - 1;
+                if (scaled[more] < 1) {
+                    small[s++] = more;
+                } else {
+                    large[l++] = more;
+                }
+            }
+
+            // Whatever is left is 1 up to rounding.
+            while (l > 0) {
+                prob[large[--l]] = 1;
+            }
+            while (s > 0) {
+                prob[small[--s]] = 1;
+            }
+        }
+
+        // Returns the number of items in this snapshot.
+        public int size() {
+            return items.length;
+        }
+
+        // Returns a random item from this snapshot, chosen in proportion to the weights.
+        public Item sample() {
+            if (items.length == 0) {
+                throw new NoSuchElementException("Snapshot is empty");
+            }
+            int i = random.nextInt(items.length);
+            return random.nextDouble() < prob[i] ? items[i] : items[alias[i]];
+        }
+    }
+
+    // An iterator, doesn't implement remove() since it's optional. Each item gets the key
+    // log(u) / weight for a uniform u, and items are returned by decreasing key
+    // (Efraimidis and Spirakis), using a binary heap built in linear time.
+    private class WeightedIterator implements Iterator<Item> {
+        private Item[] items;  // the items
+        private double[] keys; // the keys, in heap order with items
+        private int size;      // number of items left
+
+        // Constructs an iterator.
+        @SuppressWarnings("unchecked")
+        public WeightedIterator() {
+            SplittableRandom r = random.split();
+            size = n;
+            items = (Item[]) new Object[n];
+            keys = new double[n];
+            for (int i = 0; i < n; i++) {
+                items[i] = q[i];
+                keys[i] = Math.log(1.0 - r.nextDouble()) / w[i];
+            }
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                sink(i);
+            }
+        }
+
+        // Returns true if there are more items to iterate, and false otherwise.
+        public boolean hasNext() {
+            return size > 0;
+        }
+
+        // Returns the next item.
+        public Item next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("Iterator is empty");
+            }
+            Item item = items[0];
+            size--;
+            items[0] = items[size];
+            keys[0] = keys[size];
+            items[size] = null;
+            sink(0);
+            return item;
+        }
+
+        // Restores heap order by moving entry i down.
+        private void sink(int i) {
+            while (2 * i + 1 < size) {
+                int j = 2 * i + 1;
+                if (j + 1 < size && keys[j + 1] > keys[j]) {
+                    j++;
+                }
+                if (keys[i] >= keys[j]) {
+                    break;
+                }
+                Item t = items[i];
+                items[i] = items[j];
+                items[j] = t;
+                double k = keys[i];
+                keys[i] = keys[j];
+                keys[j] = k;
+                i = j;
+            }
+        }
+    }
+
+    // Returns the index of a random item, chosen in proportion to the weights, by descending
+    // the Fenwick tree to the first index whose prefix sum exceeds a uniform draw.
+    private int select() {
+        int capacity = tree.length - 1;
+        double rest = random.nextDouble() * prefix(n);
+        int pos = 0;
+        for (int step = Integer.highestOneBit(capacity); step > 0; step >>= 1) {
+            if (pos + step <= capacity && tree[pos + step] <= rest) {
+                pos += step;
+                rest -= tree[pos];
+            }
+        }
+
+        // Rounding can push the descent past the last item.
+        return Math.min(pos, n - 1);
+    }
+
+    // Adds delta to the weight at index i in the Fenwick tree.
+    private void add(int i, double delta) {
+        for (int j = i + 1; j < tree.length; j += j & -j) {
+            tree[j] += delta;
+        }
+    }
+
+    // Returns the sum of the weights at indices [0, i).
+    private double prefix(int i) {
+        double sum = 0;
+        for (int j = i; j > 0; j -= j & -j) {
+            sum += tree[j];
+        }
+        return sum;
+    }
+
+    // Counts a weight change, and rebuilds the tree from the weights once there have been as
+    // many changes as slots, so that rounding errors cannot pile up.
+    private void countUpdate() {
+        if (++updates >= q.length) {
+            rebuild();
+        }
+    }
+
+    // Rebuilds the Fenwick tree from the weights in linear time.
+    private void rebuild() {
+        tree = new double[q.length + 1];
+        for (int i = 0; i < n; i++) {
+            tree[i + 1] = w[i];
+        }
+        for (int j = 1; j < tree.length; j++) {
+            int parent = j + (j & -j);
+            if (parent < tree.length) {
+                tree[parent] += tree[j];
+            }
+        }
+        updates = 0;
+    }
+
+    // Returns the index of item in q, and throws if it is not in this queue.
+    private int indexOf(Item item) {
+        if (item == null) {
+            throw new NullPointerException("item is null");
+        }
+        Integer i = index.get(item);
+        if (i == null) {
+            throw new NoSuchElementException("item is not in the queue");
+        }
+        return i;
+    }
+
+    // Throws if weight is not positive and finite.
+    private static void checkWeight(double weight) {
+        if (!(weight > 0 && weight < Double.POSITIVE_INFINITY)) {
+            throw new IllegalArgumentException("Illegal weight " + weight);
+        }
+    }
+
+    // Resizes the underlying arrays and rebuilds the tree.
+    @SuppressWarnings("unchecked")
+    private void resize(int max) {
+        Item[] temp = (Item[]) new Object[max];
+        double[] weights = new double[max];
+        System.arraycopy(q, 0, temp, 0, n);
+        System.arraycopy(w, 0, weights, 0, n);
+        q = temp;
+        w = weights;
+        rebuild();
+    }
+
+    // Unit tests the data type.
+    public static void main(String[] args) {
+        int trials = Integer.parseInt(args[0]);
+        WeightedRandomQueue<String> q = new WeightedRandomQueue<String>(210);
+        String[] backends = {"a", "b", "c", "d", "e"};
+        for (int i = 0; i < backends.length; i++) {
+            q.enqueue(backends[i], i + 1);
+        }
+        q.updateWeight("e", 10);
+        StdOut.println(q + ", total " + q.totalWeight());
+
+        // Frequencies should match the weights 1:2:3:4:10.
+        int[] counts = new int[backends.length];
+        for (int t = 0; t < trials; t++) {
+            counts[q.sample().charAt(0) - 'a']++;
+        }
+        StdOut.print("sample():   ");
+        printFrequencies(counts, trials);
+        Snapshot<String> snapshot = q.snapshot();
+        counts = new int[backends.length];
+        for (int t = 0; t < trials; t++) {
+            counts[snapshot.sample().charAt(0) - 'a']++;
+        }
+        StdOut.print("snapshot(): ");
+        printFrequencies(counts, trials);
+
+        // The first item of the iterator and of a dequeue should follow the same distribution.
+        counts = new int[backends.length];
+        for (int t = 0; t < trials / 100; t++) {
+            counts[q.iterator().next().charAt(0) - 'a']++;
+        }
+        StdOut.print("iterator(): ");
+        printFrequencies(counts, trials / 100);
+        ArrayList<String> order = new ArrayList<String>();
+        for (String s : q) {
+            order.add(s);
+        }
+        StdOut.println("iteration order: " + order);
+        StringBuilder sb = new StringBuilder();
+        while (!q.isEmpty()) {
+            sb.append(q.dequeue());
+        }
+        StdOut.println("dequeue order:   " + sb);
+    }
+
+    // Prints the fraction of trials that picked each item.
+    private static void printFrequencies(int[] counts, int trials) {
+        for (int i = 0; i < counts.length; i++) {
+            StdOut.printf("%c %.3f  ", (char) ('a' + i), (double) counts[i] / trials);
+        }
+        StdOut.println();
+    }
+}
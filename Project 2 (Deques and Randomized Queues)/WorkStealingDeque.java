@@ -0,0 +1,272 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import stdlib.StdOut;
+
+// A data type to represent a lock-free work-stealing deque (Chase and Lev, with the memory
+// ordering of Le, Pop, Cohen and Zappa Nardelli), implemented using a growable circular array as
+// the underlying data structure.
+//
+// The deque has one owner thread, which alone may call addLast() and removeLast(); any other
+// thread may call removeFirst() to steal from the front. The owner pays no compare-and-set except
+// when it races a thief for the last item. Because items can vanish at any time, the remove
+// methods return null instead of throwing when there is nothing to take, and size() is only an
+// estimate while other threads are active.
+//
+// The positions top and bottom only ever grow, and index the array modulo its length, which is
+// a power of two. The array doubles when full; it never shrinks. Slots emptied by the owner are
+// nulled out, but a stolen item stays referenced until the owner overwrites its slot.
+public class WorkStealingDeque<Item> {
+    private static final int MIN_CAPACITY = 16; // smallest capacity of the array
+
+    private static final VarHandle TOP;    // handle for top
+    private static final VarHandle BOTTOM; // handle for bottom
+    private static final VarHandle ARRAY;  // handle for array
+    private static final VarHandle SLOT;   // handle for the elements of array
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TOP = lookup.findVarHandle(WorkStealingDeque.class, "top", long.class);
+            BOTTOM = lookup.findVarHandle(WorkStealingDeque.class, "bottom", long.class);
+            ARRAY = lookup.findVarHandle(WorkStealingDeque.class, "array", Object[].class);
+            SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile long top; // position of the front item; advanced by compare-and-set
+    private long bottom;       // position one past the back item; written by the owner only
+    private Object[] array;    // array to store the items
+
+    // Constructs an empty deque.
+    public WorkStealingDeque() {
+        this(MIN_CAPACITY);
+    }
+
+    // Constructs an empty deque with room for at least capacity items before growing.
+    public WorkStealingDeque(int capacity) {
+        if (capacity < 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Illegal capacity");
+        }
+        int c = MIN_CAPACITY;
+        while (c < capacity) {
+            c *= 2;
+        }
+        array = new Object[c];
+    }
+
+    // Returns true if this deque appears empty, and false otherwise.
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // Returns the number of items in this deque, as seen at some recent moment.
+    public int size() {
+        long b = (long) BOTTOM.getAcquire(this);
+        long t = top;
+        return (int) Math.max(0, b - t);
+    }
+
+    // Adds item to the back of this deque. Must only be called by the owner.
+    public void addLast(Item item) {
+        if (item == null) {
+            throw new NullPointerException("item is null");
+        }
+        long b = bottom;
+        long t = (long) TOP.getAcquire(this);
+        Object[] a = array;
+        if (b - t > a.length - 1) {
+            a = grow(a, t, b);
+        }
+        SLOT.set(a, (int) b & (a.length - 1), item);
+
+        // Publish the item before the new bottom that makes it visible to thieves.
+        BOTTOM.setRelease(this, b + 1);
+    }
+
+    // Removes and returns the item at the back of this deque, or null if it is empty. Must only
+    // be called by the owner.
+    @SuppressWarnings("unchecked")
+    public Item removeLast() {
+        long b = bottom - 1;
+        Object[] a = array;
+        BOTTOM.setOpaque(this, b);
+
+        // The claim on slot b must be visible before top is read, or the owner and a thief could
+        // both take the same last item.
+        VarHandle.fullFence();
+        long t = (long) TOP.getOpaque(this);
+        if (t > b) {
+            // Already empty; undo the claim.
+            BOTTOM.setOpaque(this, b + 1);
+            return null;
+        }
+        int i = (int) b & (a.length - 1);
+        Item item = (Item) SLOT.get(a, i);
+        if (t == b) {
+            // Last item: race the thieves for it.
+            if (!TOP.compareAndSet(this, t, t + 1)) {
+                item = null;
+            }
+            BOTTOM.setOpaque(this, b + 1);
+            if (item == null) {
+                return null;
+            }
+        }
+        SLOT.set(a, i, null); // avoid loitering
+        return item;
+    }
+
+    // Removes and returns the item at the front of this deque, or null if it is empty or another
+    // thread took the item first (in which case the deque may not be empty, and the caller may
+    // try again). May be called by any thread.
+    @SuppressWarnings("unchecked")
+    public Item removeFirst() {
+        long t = (long) TOP.getAcquire(this);
+
+        // Pairs with the fence in removeLast(): top must be read before bottom.
+        VarHandle.fullFence();
+        long b = (long) BOTTOM.getAcquire(this);
+        if (t >= b) {
+            return null;
+        }
+        Object[] a = (Object[]) ARRAY.getAcquire(this);
+        Item item = (Item) SLOT.getAcquire(a, (int) t & (a.length - 1));
+        if (!TOP.compareAndSet(this, t, t + 1)) {
+            return null;
+        }
+        return item;
+    }
+
+    // Returns a copy of the array, twice as long, holding the items at positions [t, b).
+    private Object[] grow(Object[] a, long t, long b) {
+        if (a.length == 1 << 30) {
+            throw new IllegalStateException("Deque is full");
+        }
+        Object[] bigger = new Object[2 * a.length];
+        for (long i = t; i < b; i++) {
+            bigger[(int) i & (bigger.length - 1)] = a[(int) i & (a.length - 1)];
+        }
+
+        // Thieves still reading the old array find the same items there, since nothing in it is
+        // overwritten from now on.
+        ARRAY.setRelease(this, bigger);
+        return bigger;
+    }
+
+    // Unit tests the data type, and compares it with a LinkedDeque behind a lock. The owner
+    // pushes tasks (numbered 1 to n) and pops them, pushing two subtasks for every popped task
+    // that is at most n; thieves steal from the front and do the same on their own deques.
+    public static void main(String[] args) {
+        int thieves = Integer.parseInt(args[0]);
+        int n = Integer.parseInt(args[1]);
+        for (int round = 0; round < 3; round++) {
+            benchmark("work-stealing deque", thieves, n, false);
+            benchmark("locked LinkedDeque ", thieves, n, true);
+        }
+    }
+
+    // Runs one benchmark round and reports its throughput and whether every task ran once.
+    private static void benchmark(String name, int thieves, int n, boolean locked) {
+        int workers = thieves + 1;
+        Object[] deques = new Object[workers];
+        for (int w = 0; w < workers; w++) {
+            deques[w] = locked ? new LinkedDeque<Integer>() : new WorkStealingDeque<Integer>();
+        }
+        AtomicLong done = new AtomicLong();
+        AtomicLong sum = new AtomicLong();
+        long total = 2L * n - 1; // tasks 1 to 2n - 1 each run once
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[workers];
+        for (int w = 0; w < workers; w++) {
+            final int me = w;
+            threads[w] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long count = 0;
+                long local = 0;
+                int victim = me;
+                while (done.get() + count < total) {
+                    Integer task = pop(deques[me], locked);
+                    if (task == null) {
+                        victim = (victim + 1) % workers;
+                        task = steal(deques[victim], locked);
+                        if (task == null) {
+                            done.addAndGet(count);
+                            sum.addAndGet(local);
+                            count = 0;
+                            local = 0;
+                            Thread.onSpinWait();
+                            continue;
+                        }
+                    }
+                    count++;
+                    local += task;
+                    if (task < n) {
+                        push(deques[me], locked, 2 * task);
+                        push(deques[me], locked, 2 * task + 1);
+                    }
+                }
+                done.addAndGet(count);
+                sum.addAndGet(local);
+            });
+            threads[w].start();
+        }
+        push(deques[0], locked, 1);
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+        StdOut.printf("%s: %d threads, %.1f Mtasks/s, every task ran once? %b\n", name, workers,
+                total / elapsed / 1e6, sum.get() == total * (total + 1) / 2);
+    }
+
+    // Pushes task onto the back of the given deque.
+    @SuppressWarnings("unchecked")
+    private static void push(Object deque, boolean locked, int task) {
+        if (locked) {
+            synchronized (deque) {
+                ((LinkedDeque<Integer>) deque).addLast(task);
+            }
+        } else {
+            ((WorkStealingDeque<Integer>) deque).addLast(task);
+        }
+    }
+
+    // Pops a task from the back of the given deque, or returns null.
+    @SuppressWarnings("unchecked")
+    private static Integer pop(Object deque, boolean locked) {
+        if (locked) {
+            synchronized (deque) {
+                LinkedDeque<Integer> d = (LinkedDeque<Integer>) deque;
+                return d.isEmpty() ? null : d.removeLast();
+            }
+        }
+        return ((WorkStealingDeque<Integer>) deque).removeLast();
+    }
+
+    // Steals a task from the front of the given deque, or returns null.
+    @SuppressWarnings("unchecked")
+    private static Integer steal(Object deque, boolean locked) {
+        if (locked) {
+            synchronized (deque) {
+                LinkedDeque<Integer> d = (LinkedDeque<Integer>) deque;
+                return d.isEmpty() ? null : d.removeFirst();
+            }
+        }
+        return ((WorkStealingDeque<Integer>) deque).removeFirst();
+    }
+}
@@ -0,0 +1,234 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import stdlib.StdOut;
+
+// A library of static methods for bulk dice simulation. Where Die rolls one six-sided die at a
+// time through the shared StdRandom, these methods roll many dice with any number of faces,
+// in parallel, and can aggregate the rolls without storing them.
+//
+// Work is cut into fixed-size chunks, and chunk c draws from its own SplittableRandom seeded from
+// (seed, c), so results depend only on the seed, not on the number of threads. Face values are
+// drawn with Lemire's nearly divisionless method, which is exactly uniform.
+public class DiceSimulator {
+    // Number of rolls (or trials) per chunk.
+    private static final int CHUNK = 1 << 16;
+
+    // Golden-ratio increment used to spread chunk seeds apart.
+    private static final long GOLDEN = 0x9e3779b97f4a7c15L;
+
+    // Not instantiable.
+    private DiceSimulator() {
+    }
+
+    // Returns the face values (1 to faces) of n dice rolled with the given seed.
+    public static int[] roll(int n, int faces, long seed) {
+        check(n, 1, faces);
+        int[] a = new int[n];
+        int chunks = (n + CHUNK - 1) / CHUNK;
+        ForkJoinPool.commonPool().invoke(new FillTask(a, faces, seed, 0, chunks));
+        return a;
+    }
+
+    // Returns the face counts of n dice rolled with the given seed; entry v is the number of
+    // dice that came up v, for 1 <= v <= faces.
+    public static long[] histogram(long n, int faces, long seed) {
+        return sumDistribution(n, 1, faces, seed);
+    }
+
+    // Returns the distribution of the sum of dice dice over the given number of trials; entry s
+    // is the number of trials whose dice summed to s, for dice <= s <= dice * faces.
+    public static long[] sumDistribution(long trials, int dice, int faces, long seed) {
+        check(trials, dice, faces);
+        if ((long) dice * faces > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Sums too large");
+        }
+        return distribution(trials, dice, faces, seed, false);
+    }
+
+    // Returns the distribution of the maximum of k dice over the given number of trials; entry
+    // v is the number of trials whose highest die was v, for 1 <= v <= faces.
+    public static long[] maxDistribution(long trials, int k, int faces, long seed) {
+        check(trials, k, faces);
+        return distribution(trials, k, faces, seed, true);
+    }
+
+    // Returns the mean of the given distribution, entry v counting the outcomes equal to v.
+    public static double mean(long[] counts) {
+        double sum = 0;
+        double total = 0;
+        for (int v = 0; v < counts.length; v++) {
+            sum += (double) v * counts[v];
+            total += counts[v];
+        }
+        return sum / total;
+    }
+
+    // Returns the aggregated distribution of trials, each rolling dice dice and keeping their
+    // sum or, if max is true, their maximum.
+    private static long[] distribution(long trials, int dice, int faces, long seed, boolean max) {
+        long chunks = (trials + CHUNK - 1) / CHUNK;
+        int size = (max ? faces : dice * faces) + 1;
+        return ForkJoinPool.commonPool().invoke(
+                new CountTask(trials, dice, faces, seed, max, size, 0, chunks));
+    }
+
+    // Returns a value drawn uniformly from 1 to faces (Lemire's method).
+    private static int face(SplittableRandom random, int faces) {
+        long m = (random.nextInt() & 0xffffffffL) * faces;
+        long low = m & 0xffffffffL;
+        if (low < faces) {
+            // Reject the 2^32 mod faces lowest values of low, which would bias small faces.
+            long threshold = (1L << 32) % faces;
+            while (low < threshold) {
+                m = (random.nextInt() & 0xffffffffL) * faces;
+                low = m & 0xffffffffL;
+            }
+        }
+        return (int) (m >>> 32) + 1;
+    }
+
+    // Returns the generator for the given chunk. Generators built from nearby seeds walk the
+    // same sequence a few steps apart, so the chunk's seed is scrambled first (Stafford's
+    // variant 13 of the MurmurHash3 finalizer).
+    private static SplittableRandom generator(long seed, long chunk) {
+        long z = seed + GOLDEN * (chunk + 1);
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return new SplittableRandom(z ^ (z >>> 31));
+    }
+
+    // Throws if the arguments are illegal.
+    private static void check(long n, int dice, int faces) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Illegal number of rolls");
+        }
+        if (dice <= 0) {
+            throw new IllegalArgumentException("Illegal number of dice");
+        }
+        if (faces <= 0) {
+            throw new IllegalArgumentException("Illegal number of faces");
+        }
+    }
+
+    // A fork-join task that fills a range of chunks of an array with rolls.
+    private static class FillTask extends RecursiveAction {
+        private int[] a;    // the rolls
+        private int faces;  // number of faces per die
+        private long seed;  // the seed
+        private int lo;     // first chunk (inclusive)
+        private int hi;     // last chunk (exclusive)
+
+        // Constructs a task for chunks [lo, hi).
+        FillTask(int[] a, int faces, long seed, int lo, int hi) {
+            this.a = a;
+            this.faces = faces;
+            this.seed = seed;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        // Fills the chunks, splitting the range in half while it spans more than one chunk.
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new FillTask(a, faces, seed, lo, mid),
+                        new FillTask(a, faces, seed, mid, hi));
+                return;
+            }
+            SplittableRandom random = generator(seed, lo);
+            int end = (int) Math.min(a.length, (long) hi * CHUNK);
+            for (int i = lo * CHUNK; i < end; i++) {
+                a[i] = face(random, faces);
+            }
+        }
+    }
+
+    // A fork-join task that counts the outcomes of a range of chunks of trials.
+    private static class CountTask extends RecursiveTask<long[]> {
+        private long trials;  // total number of trials
+        private int dice;     // dice per trial
+        private int faces;    // number of faces per die
+        private long seed;    // the seed
+        private boolean max;  // keep the maximum (true) or the sum (false) of each trial
+        private int size;     // length of the counts array
+        private long lo;      // first chunk (inclusive)
+        private long hi;      // last chunk (exclusive)
+
+        // Constructs a task for chunks [lo, hi).
+        CountTask(long trials, int dice, int faces, long seed, boolean max, int size, long lo,
+                  long hi) {
+            this.trials = trials;
+            this.dice = dice;
+            this.faces = faces;
+            this.seed = seed;
+            this.max = max;
+            this.size = size;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        // Returns the counts for the chunks, splitting the range in half while it spans more than
+        // one chunk and adding up the halves.
+        protected long[] compute() {
+            if (hi - lo > 1) {
+                long mid = (lo + hi) >>> 1;
+                CountTask left = new CountTask(trials, dice, faces, seed, max, size, lo, mid);
+                left.fork();
+                long[] counts = new CountTask(trials, dice, faces, seed, max, size, mid, hi)
+                        .compute();
+                long[] other = left.join();
+                for (int v = 0; v < size; v++) {
+                    counts[v] += other[v];
+                }
+                return counts;
+            }
+            long[] counts = new long[size];
+            SplittableRandom random = generator(seed, lo);
+            long end = Math.min(trials, hi * CHUNK);
+            for (long t = lo * CHUNK; t < end; t++) {
+                int outcome = 0;
+                for (int d = 0; d < dice; d++) {
+                    int v = face(random, faces);
+                    outcome = max ? Math.max(outcome, v) : outcome + v;
+                }
+                counts[outcome]++;
+            }
+            return counts;
+        }
+    }
+
+    // Unit tests the library.
+    public static void main(String[] args) {
+        long n = Long.parseLong(args[0]);
+        int faces = Integer.parseInt(args[1]);
+        long seed = Long.parseLong(args[2]);
+
+        long start = System.nanoTime();
+        long[] h = histogram(n, faces, seed);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        double chi2 = 0;
+        double expected = (double) n / faces;
+        for (int v = 1; v <= faces; v++) {
+            chi2 += (h[v] - expected) * (h[v] - expected) / expected;
+        }
+        StdOut.printf("histogram(%d, %d): %.1f Mrolls/s, chi-square = %.2f (%d dof)\n", n, faces,
+                n / elapsed / 1e6, chi2, faces - 1);
+        StdOut.printf("mean of 3d%d sums      = %.4f (expected %.4f)\n", faces,
+                mean(sumDistribution(n / 3, 3, faces, seed)), 3 * (faces + 1) / 2.0);
+        StdOut.printf("mean of max of 2d%d    = %.4f\n", faces,
+                mean(maxDistribution(n / 2, 2, faces, seed)));
+
+        int[] a = roll((int) Math.min(n, 1 << 20), faces, seed);
+        long[] fromRolls = new long[faces + 1];
+        for (int v : a) {
+            fromRolls[v]++;
+        }
+        long[] fromHistogram = histogram(a.length, faces, seed);
+        StdOut.println("roll() and histogram() agree? "
+                + Arrays.equals(fromRolls, fromHistogram));
+    }
+}
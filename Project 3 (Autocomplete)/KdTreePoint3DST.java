@@ -0,0 +1,549 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import stdlib.StdOut;
+import stdlib.StdRandom;
+
+// An implementation of the Point3DST API using an implicit 3d-tree over flat coordinate arrays.
+//
+// The subtree over positions [lo, hi) has its root at the middle position, its lower half in
+// [lo, mid) and its upper half in [mid + 1, hi); nodes at depth d split on axis d mod 3. There
+// are no node objects and no bounding boxes, only one array per coordinate plus the values. The
+// tree is bulk loaded by median splits in O(n log n) time, in parallel.
+//
+// Points added with put() that are not already in the tree are appended after it, found through
+// a small hash table, and scanned by range and nearest-neighbour queries. Once there are more
+// than about n / 8 of them, the tree is rebuilt with them merged in, so a put costs O(log n)
+// amortized time however puts and queries are interleaved.
+public class KdTreePoint3DST<Value> implements Point3DST<Value> {
+    // Ranges at most this long are built sequentially.
+    private static final int PARALLEL_CUTOFF = 1 << 13;
+
+    // Number of pending points always allowed before a rebuild, however small the tree.
+    private static final int MIN_PENDING = 64;
+
+    private double[] x;     // x coordinates, in tree order
+    private double[] y;     // y coordinates, in tree order
+    private double[] z;     // z coordinates, in tree order
+    private Object[] vals;  // values, in tree order
+    private int n;          // number of points in the tree
+    private int pending;    // number of points put after the last build, stored after the tree
+    private int[] slots;    // hash table of pending positions + 1, 0 marking an empty slot
+
+    // Constructs an empty symbol table.
+    public KdTreePoint3DST() {
+        x = new double[8];
+        y = new double[8];
+        z = new double[8];
+        vals = new Object[8];
+        slots = new int[2 * MIN_PENDING];
+    }
+
+    // Constructs a symbol table that maps points[i] to values[i]. If a point appears more than
+    // once, its last value wins.
+    public KdTreePoint3DST(Point3D[] points, Value[] values) {
+        if (points == null || values == null) {
+            throw new NullPointerException("points or values is null");
+        }
+        if (points.length != values.length) {
+            throw new IllegalArgumentException("Lengths differ");
+        }
+        int m = points.length;
+        x = new double[Math.max(8, m)];
+        y = new double[Math.max(8, m)];
+        z = new double[Math.max(8, m)];
+        vals = new Object[Math.max(8, m)];
+        slots = new int[2 * MIN_PENDING];
+        for (int i = 0; i < m; i++) {
+            if (points[i] == null || values[i] == null) {
+                throw new NullPointerException("point or value is null");
+            }
+            x[i] = points[i].x();
+            y[i] = points[i].y();
+            z[i] = points[i].z();
+            vals[i] = values[i];
+        }
+        pending = m;
+        build();
+    }
+
+    // Returns true if this symbol table is empty, and false otherwise.
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // Returns the number of key-value pairs in this symbol table.
+    public int size() {
+        return n + pending;
+    }
+
+    // Inserts the given point and value into this symbol table.
+    public void put(Point3D p, Value value) {
+        if (p == null) {
+            throw new NullPointerException("p is null");
+        }
+        if (value == null) {
+            throw new NullPointerException("value is null");
+        }
+        int t = find(0, n, 0, p.x(), p.y(), p.z());
+        if (t >= 0) {
+            vals[t] = value;
+            return;
+        }
+        int slot = slot(p.x(), p.y(), p.z());
+        if (slots[slot] != 0) {
+            vals[slots[slot] - 1] = value;
+            return;
+        }
+        int i = n + pending;
+        if (i == x.length) {
+            x = Arrays.copyOf(x, 2 * i);
+            y = Arrays.copyOf(y, 2 * i);
+            z = Arrays.copyOf(z, 2 * i);
+            vals = Arrays.copyOf(vals, 2 * i);
+        }
+        x[i] = p.x();
+        y[i] = p.y();
+        z[i] = p.z();
+        vals[i] = value;
+        slots[slot] = i + 1;
+        pending++;
+        if (pending > Math.max(MIN_PENDING, n >>> 3)) {
+            build();
+        } else if (2 * pending > slots.length) {
+            rehash(2 * slots.length);
+        }
+    }
+
+    // Returns the value associated with the given point in this symbol table, or null.
+    public Value get(Point3D p) {
+        if (p == null) {
+            throw new NullPointerException("p is null");
+        }
+        int i = find(0, n, 0, p.x(), p.y(), p.z());
+        if (i < 0) {
+            i = slots[slot(p.x(), p.y(), p.z())] - 1;
+        }
+        return i < 0 ? null : value(i);
+    }
+
+    // Returns true if this symbol table contains the given point, and false otherwise.
+    public boolean contains(Point3D p) {
+        return get(p) != null;
+    }
+
+    // Returns all the points in this symbol table.
+    public Iterable<Point3D> points() {
+        return () -> new PointIterator();
+    }
+
+    // Returns all the points in this symbol table that are inside the axis-aligned box with
+    // opposite corners lo and hi (boundary included).
+    public Iterable<Point3D> range(Point3D lo, Point3D hi) {
+        if (lo == null || hi == null) {
+            throw new NullPointerException("lo or hi is null");
+        }
+        double[] min = {Math.min(lo.x(), hi.x()), Math.min(lo.y(), hi.y()),
+            Math.min(lo.z(), hi.z())};
+        double[] max = {Math.max(lo.x(), hi.x()), Math.max(lo.y(), hi.y()),
+            Math.max(lo.z(), hi.z())};
+        List<Point3D> result = new ArrayList<Point3D>();
+        range(0, n, 0, min, max, result);
+        for (int i = n; i < n + pending; i++) {
+            if (x[i] >= min[0] && x[i] <= max[0] && y[i] >= min[1] && y[i] <= max[1]
+                    && z[i] >= min[2] && z[i] <= max[2]) {
+                result.add(new Point3D(x[i], y[i], z[i]));
+            }
+        }
+        return result;
+    }
+
+    // Returns the point in this symbol table that is different from and closest to the given point,
+    // or null.
+    public Point3D nearest(Point3D p) {
+        Iterator<Point3D> it = nearest(p, 1).iterator();
+        return it.hasNext() ? it.next() : null;
+    }
+
+    // Returns up to k points from this symbol table that are different from and closest to the
+    // given point, nearest first.
+    public Iterable<Point3D> nearest(Point3D p, int k) {
+        if (p == null) {
+            throw new NullPointerException("p is null");
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException("Illegal k");
+        }
+        SpatialSupport.Heap heap = new SpatialSupport.Heap(Math.min(k, n + pending));
+        if (heap.capacity() > 0) {
+            nearest(0, n, 0, p.x(), p.y(), p.z(), heap);
+            for (int i = n; i < n + pending; i++) {
+                if (x[i] != p.x() || y[i] != p.y() || z[i] != p.z()) {
+                    double dx = x[i] - p.x();
+                    double dy = y[i] - p.y();
+                    double dz = z[i] - p.z();
+                    heap.offer(dx * dx + dy * dy + dz * dz, i);
+                }
+            }
+        }
+        List<Point3D> result = new ArrayList<Point3D>();
+        for (int i : heap.drain()) {
+            result.add(new Point3D(x[i], y[i], z[i]));
+        }
+        return result;
+    }
+
+    // Returns the value at position i.
+    @SuppressWarnings("unchecked")
+    private Value value(int i) {
+        return (Value) vals[i];
+    }
+
+    // Returns the coordinate of position i along axis a.
+    private double coordinate(int i, int a) {
+        return a == 0 ? x[i] : a == 1 ? y[i] : z[i];
+    }
+
+    // Returns the position of the point (px, py, pz) in the subtree over [lo, hi) at the given
+    // depth, or -1. Points equal to a splitting coordinate may sit on either side of it.
+    private int find(int lo, int hi, int depth, double px, double py, double pz) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (x[mid] == px && y[mid] == py && z[mid] == pz) {
+                return mid;
+            }
+            int a = depth % 3;
+            double q = a == 0 ? px : a == 1 ? py : pz;
+            double c = coordinate(mid, a);
+            if (q == c) {
+                int i = find(lo, mid, depth + 1, px, py, pz);
+                if (i >= 0) {
+                    return i;
+                }
+            }
+            if (q < c) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+            depth++;
+        }
+        return -1;
+    }
+
+    // Collects into result the points in the subtree over [lo, hi) at the given depth that lie
+    // in the box [min, max].
+    private void range(int lo, int hi, int depth, double[] min, double[] max,
+                       List<Point3D> result) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (x[mid] >= min[0] && x[mid] <= max[0] && y[mid] >= min[1] && y[mid] <= max[1]
+                && z[mid] >= min[2] && z[mid] <= max[2]) {
+            result.add(new Point3D(x[mid], y[mid], z[mid]));
+        }
+        int a = depth % 3;
+        double c = coordinate(mid, a);
+        if (min[a] <= c) {
+            range(lo, mid, depth + 1, min, max, result);
+        }
+        if (max[a] >= c) {
+            range(mid + 1, hi, depth + 1, min, max, result);
+        }
+    }
+
+    // Collects into heap the points in the subtree over [lo, hi) at the given depth that are
+    // different from and closest to (px, py, pz).
+    private void nearest(int lo, int hi, int depth, double px, double py, double pz,
+                         SpatialSupport.Heap heap) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        double dx = x[mid] - px;
+        double dy = y[mid] - py;
+        double dz = z[mid] - pz;
+        double d2 = dx * dx + dy * dy + dz * dz;
+        if (x[mid] != px || y[mid] != py || z[mid] != pz) {
+            heap.offer(d2, mid);
+        }
+        int a = depth % 3;
+        double diff = (a == 0 ? px : a == 1 ? py : pz) - coordinate(mid, a);
+        if (diff < 0) {
+            nearest(lo, mid, depth + 1, px, py, pz, heap);
+            if (!heap.isFull() || diff * diff < heap.max()) {
+                nearest(mid + 1, hi, depth + 1, px, py, pz, heap);
+            }
+        } else {
+            nearest(mid + 1, hi, depth + 1, px, py, pz, heap);
+            if (!heap.isFull() || diff * diff < heap.max()) {
+                nearest(lo, mid, depth + 1, px, py, pz, heap);
+            }
+        }
+    }
+
+    // Returns the slot of the hash table holding the pending point (px, py, pz), or the empty
+    // slot where it belongs (linear probing).
+    private int slot(double px, double py, double pz) {
+        int mask = slots.length - 1;
+        // Adding 0.0 turns -0.0 into 0.0, which compares equal to it.
+        long h = Double.doubleToLongBits(px + 0.0) * 0x9e3779b97f4a7c15L;
+        h = (h ^ Double.doubleToLongBits(py + 0.0)) * 0x9e3779b97f4a7c15L;
+        h = (h ^ Double.doubleToLongBits(pz + 0.0)) * 0x9e3779b97f4a7c15L;
+        int i = (int) (h >>> 32) & mask;
+        while (slots[i] != 0) {
+            int j = slots[i] - 1;
+            if (x[j] == px && y[j] == py && z[j] == pz) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    // Moves the pending positions to a hash table of the given capacity (a power of 2).
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        for (int i = n; i < n + pending; i++) {
+            slots[slot(x[i], y[i], z[i])] = i + 1;
+        }
+    }
+
+    // Merges any pending points into the tree and rebuilds it. Duplicate points are collapsed
+    // to the one put last.
+    private void build() {
+        if (pending == 0) {
+            return;
+        }
+        int m = n + pending;
+
+        // Sort positions by (x, y, z), keeping insertion order among equal points (stable sorts
+        // by z, then y, then x), then keep the last of each run of equal points.
+        int[] perm = new int[m];
+        int[] aux = new int[m];
+        for (int i = 0; i < m; i++) {
+            perm[i] = i;
+        }
+        for (double[] key : new double[][]{z, y, x}) {
+            int[] sorted = SpatialSupport.sortBy(perm, aux, key);
+            aux = sorted == perm ? aux : perm;
+            perm = sorted;
+        }
+        int size = 0;
+        for (int i = 0; i < m; i++) {
+            if (i + 1 < m && compare(perm[i], perm[i + 1]) == 0) {
+                continue;
+            }
+            perm[size++] = perm[i];
+        }
+        double[] nx = new double[Math.max(8, size)];
+        double[] ny = new double[Math.max(8, size)];
+        double[] nz = new double[Math.max(8, size)];
+        Object[] nv = new Object[Math.max(8, size)];
+        for (int i = 0; i < size; i++) {
+            nx[i] = x[perm[i]];
+            ny[i] = y[perm[i]];
+            nz[i] = z[perm[i]];
+            nv[i] = vals[perm[i]];
+        }
+        x = nx;
+        y = ny;
+        z = nz;
+        vals = nv;
+        n = size;
+        pending = 0;
+        Arrays.fill(slots, 0);
+        ForkJoinPool.commonPool().invoke(new BuildTask(0, n, 0));
+    }
+
+    // Builds the subtree over [lo, hi) at the given depth, moving the median along its axis to
+    // the middle position.
+    private void build(int lo, int hi, int depth) {
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi - 1, mid, depth % 3);
+            build(lo, mid, depth + 1);
+            lo = mid + 1;
+            depth++;
+        }
+    }
+
+    // Rearranges positions [lo, hi] so that position k holds the k-th smallest coordinate along
+    // axis a, with no larger ones before it and no smaller ones after it.
+    private void select(int lo, int hi, int k, int a) {
+        SpatialSupport.select(a == 0 ? x : a == 1 ? y : z, lo, hi, k, this::swap);
+    }
+
+    // Swaps the entries at positions i and j.
+    private void swap(int i, int j) {
+        double t = x[i];
+        x[i] = x[j];
+        x[j] = t;
+        t = y[i];
+        y[i] = y[j];
+        y[j] = t;
+        t = z[i];
+        z[i] = z[j];
+        z[j] = t;
+        Object v = vals[i];
+        vals[i] = vals[j];
+        vals[j] = v;
+    }
+
+    // Returns a comparison of the points at positions i and j by x, then y, then z.
+    private int compare(int i, int j) {
+        int c = Double.compare(x[i], x[j]);
+        if (c == 0) {
+            c = Double.compare(y[i], y[j]);
+        }
+        if (c == 0) {
+            c = Double.compare(z[i], z[j]);
+        }
+        return c;
+    }
+
+    // An iterator over the points in the tree, in tree order.
+    private class PointIterator implements Iterator<Point3D> {
+        private int next; // position of the next point
+
+        // Returns true if there are more points to iterate, and false otherwise.
+        public boolean hasNext() {
+            return next < n + pending;
+        }
+
+        // Returns the next point.
+        public Point3D next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("Iterator is empty");
+            }
+            Point3D p = new Point3D(x[next], y[next], z[next]);
+            next++;
+            return p;
+        }
+    }
+
+    // A fork-join task that builds the subtree over a range of positions.
+    private class BuildTask extends RecursiveAction {
+        private int lo;    // first position (inclusive)
+        private int hi;    // last position (exclusive)
+        private int depth; // depth of the subtree's root
+
+        // Constructs a task for the subtree over [lo, hi) at the given depth.
+        BuildTask(int lo, int hi, int depth) {
+            this.lo = lo;
+            this.hi = hi;
+            this.depth = depth;
+        }
+
+        // Places the root of the subtree, then builds its two halves in parallel.
+        protected void compute() {
+            if (hi - lo <= PARALLEL_CUTOFF) {
+                build(lo, hi, depth);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi - 1, mid, depth % 3);
+            invokeAll(new BuildTask(lo, mid, depth + 1), new BuildTask(mid + 1, hi, depth + 1));
+        }
+    }
+
+    // Unit tests the data type.
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        int k = Integer.parseInt(args[1]);
+        Point3D[] points = new Point3D[n];
+        Integer[] values = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = new Point3D(StdRandom.uniform(-100, 100) / 10.0,
+                    StdRandom.uniform(-100, 100) / 10.0, StdRandom.uniform(-100, 100) / 10.0);
+            values[i] = i;
+        }
+        long start = System.nanoTime();
+        KdTreePoint3DST<Integer> st = new KdTreePoint3DST<Integer>(points, values);
+        StdOut.printf("bulk loaded %d points (%d distinct) in %.3f s\n", n, st.size(),
+                (System.nanoTime() - start) / 1e9);
+
+        // Compare against brute force for a few random queries.
+        boolean agree = true;
+        for (int t = 0; t < 20 && n > 0; t++) {
+            Point3D q = points[StdRandom.uniform(n)];
+            agree &= st.contains(q);
+            Point3D lo = new Point3D(q.x() - 1, q.y() - 1, q.z() - 1);
+            Point3D hi = new Point3D(q.x() + 1, q.y() + 1, q.z() + 1);
+            int inBox = 0;
+            for (Point3D p : st.points()) {
+                inBox += p.x() >= lo.x() && p.x() <= hi.x() && p.y() >= lo.y() && p.y() <= hi.y()
+                        && p.z() >= lo.z() && p.z() <= hi.z() ? 1 : 0;
+            }
+            int count = 0;
+            for (Point3D p : st.range(lo, hi)) {
+                count++;
+            }
+            agree &= count == inBox;
+            double[] d = new double[st.size()];
+            int m = 0;
+            for (Point3D p : st.points()) {
+                d[m++] = p.x() == q.x() && p.y() == q.y() && p.z() == q.z()
+                        ? Double.POSITIVE_INFINITY : p.distance(q);
+            }
+            Arrays.sort(d);
+            int i = 0;
+            for (Point3D p : st.nearest(q, k)) {
+                agree &= p.distance(q) == d[i++];
+            }
+        }
+        StdOut.println("agrees with brute force? " + agree);
+
+        // Puts after the bulk load are seen by the very next query.
+        Point3D extra = new Point3D(100, 100, 100);
+        st.put(extra, -1);
+        st.put(extra, -2);
+        StdOut.println("st.get(" + extra + ") = " + st.get(extra));
+        StdOut.println("st.nearest(" + extra + ") = " + st.nearest(extra));
+
+        // Interleave puts and queries on a fresh table, checking every answer against the
+        // points put so far.
+        KdTreePoint3DST<Integer> grown = new KdTreePoint3DST<Integer>();
+        List<Point3D> put = new ArrayList<Point3D>();
+        agree = true;
+        start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            Point3D p = points[i];
+            boolean seen = grown.contains(p);
+            grown.put(p, i);
+            if (!seen) {
+                put.add(p);
+            }
+            agree &= grown.get(p) == i && grown.size() == put.size();
+            if (i % 1000 == 0) {
+                Point3D lo = new Point3D(p.x() - 2, p.y() - 2, p.z() - 2);
+                Point3D hi = new Point3D(p.x() + 2, p.y() + 2, p.z() + 2);
+                int inBox = 0;
+                double best = Double.POSITIVE_INFINITY;
+                for (Point3D r : put) {
+                    inBox += r.x() >= lo.x() && r.x() <= hi.x() && r.y() >= lo.y()
+                            && r.y() <= hi.y() && r.z() >= lo.z() && r.z() <= hi.z() ? 1 : 0;
+                    if (r.x() != p.x() || r.y() != p.y() || r.z() != p.z()) {
+                        best = Math.min(best, r.distance(p));
+                    }
+                }
+                int count = 0;
+                for (Point3D r : grown.range(lo, hi)) {
+                    count++;
+                }
+                Point3D near = grown.nearest(p);
+                agree &= count == inBox
+                        && (near == null ? best == Double.POSITIVE_INFINITY
+                        : near.distance(p) == best);
+            }
+        }
+        StdOut.printf("%d interleaved puts and gets in %.3f s, agree with brute force? %s\n", n,
+                (System.nanoTime() - start) / 1e9, agree);
+    }
+}
@@ -3,27 +3,94 @@ import java.util.Arrays;
 import stdlib.StdOut;
 
 public class Location implements Comparable<Location> {
+    // Radius of the earth, in kilometers.
+    static final double RADIUS = 6359.83;
+
+    // The origin used by compareTo(), Parthenon (Greece) @ 37.971525, 23.726726.
+    private static final Location PARTHENON = new Location("Parthenon", 37.971525, 23.726726);
+
     private String name; // location name
     private double lat;  // latitude
     private double lon;  // longitude
+    private double x;    // x coordinate of the position on the unit sphere
+    private double y;    // y coordinate of the position on the unit sphere
+    private double z;    // z coordinate of the position on the unit sphere
+    private double key;  // squared chord length to the Parthenon
 
     // Constructs a new location given its name, latitude, and longitude.
     public Location(String name, double lat, double lon) {
         this.name = name;
         this.lat = lat;
         this.lon = lon;
+        double latr = Math.toRadians(lat);
+        double lonr = Math.toRadians(lon);
+        this.x = Math.cos(latr) * Math.cos(lonr);
+        this.y = Math.cos(latr) * Math.sin(lonr);
+        this.z = Math.sin(latr);
+        this.key = PARTHENON == null ? 0 : chord2(this, PARTHENON);
     }
 
     // Returns the great-circle distance between this location and other.
     public double distanceTo(Location other) {
-        double x1r = Math.toRadians(this.lat);
-        double y1r = Math.toRadians(this.lon);
-        double x2r = Math.toRadians(other.lat);
-        double y2r = Math.toRadians(other.lon);
-        // Calculate great-circle distance d.
-        double d = 6359.83 * Math.acos(Math.sin(x1r) * Math.sin(x2r) +
-                Math.cos(x1r) * Math.cos(x2r) * Math.cos(y1r - y2r));
-        return (d);
+        // The angle between the two unit vectors, from atan2(|a x b|, a . b), is accurate for
+        // nearby and antipodal points alike, unlike acos(a . b).
+        double cx = this.y * other.z - this.z * other.y;
+        double cy = this.z * other.x - this.x * other.z;
+        double cz = this.x * other.y - this.y * other.x;
+        double cross = Math.sqrt(cx * cx + cy * cy + cz * cz);
+        double dot = this.x * other.x + this.y * other.y + this.z * other.z;
+        return RADIUS * Math.atan2(cross, dot);
+    }
+
+    // Returns the x coordinate of this location on the unit sphere.
+    double x() {
+        return x;
+    }
+
+    // Returns the y coordinate of this location on the unit sphere.
+    double y() {
+        return y;
+    }
+
+    // Returns the z coordinate of this location on the unit sphere.
+    double z() {
+        return z;
+    }
+
+    // Returns the great-circle distances from origin to each of the given locations.
+    public static double[] distancesTo(Location origin, Location[] locations) {
+        if (origin == null || locations == null) {
+            throw new NullPointerException("origin or locations is null");
+        }
+        double[] d = new double[locations.length];
+        for (int i = 0; i < locations.length; i++) {
+            d[i] = origin.distanceTo(locations[i]);
+        }
+        return d;
+    }
+
+    // Sorts the given locations by their great-circle distance to origin. Each location's sort
+    // key is computed once, rather than twice per comparison; ties keep their original order.
+    public static void sortByDistanceTo(Location origin, Location[] locations) {
+        if (origin == null || locations == null) {
+            throw new NullPointerException("origin or locations is null");
+        }
+        int n = locations.length;
+
+        // The squared chord length grows with the great-circle distance, so it sorts the same
+        // way, costs no trigonometry, and is well conditioned for nearby points.
+        double[] keys = new double[n];
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = chord2(origin, locations[i]);
+            perm[i] = i;
+        }
+        sort(perm, new int[n], keys, 0, n);
+        Location[] sorted = new Location[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = locations[perm[i]];
+        }
+        System.arraycopy(sorted, 0, locations, 0, n);
     }
 
     // Returns true if this location is the same as other, and false otherwise.
@@ -48,10 +115,42 @@ public class Location implements Comparable<Location> {
     // Returns a comparison of this location with other based on their respective distances to
     // the origin, Parthenon (Greece) @ 37.971525, 23.726726.
     public int compareTo(Location that) {
-        Location originLoc = new Location("Parthenon", 37.971525, 23.726726);
-        double aDist = this.distanceTo(originLoc);
-        double bDist = that.distanceTo(originLoc);
-        return Double.compare(aDist, bDist);
+        return Double.compare(this.key, that.key);
+    }
+
+    // Returns the squared length of the chord between a and b on the unit sphere.
+    private static double chord2(Location a, Location b) {
+        double dx = a.x - b.x;
+        double dy = a.y - b.y;
+        double dz = a.z - b.z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    // Stably sorts perm[lo, hi) by keys[perm[i]], using aux as scratch space (merge sort).
+    private static void sort(int[] perm, int[] aux, double[] keys, int lo, int hi) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        sort(perm, aux, keys, lo, mid);
+        sort(perm, aux, keys, mid, hi);
+        if (keys[perm[mid - 1]] <= keys[perm[mid]]) {
+            return;
+        }
+        System.arraycopy(perm, lo, aux, lo, hi - lo);
+        int i = lo;
+        int j = mid;
+        for (int k = lo; k < hi; k++) {
+            if (i == mid) {
+                perm[k] = aux[j++];
+            } else if (j == hi) {
+                perm[k] = aux[i++];
+            } else if (keys[aux[j]] < keys[aux[i]]) {
+                perm[k] = aux[j++];
+            } else {
+                perm[k] = aux[i++];
+            }
+        }
     }
 
     // Unit tests the data type. [DO NOT EDIT]
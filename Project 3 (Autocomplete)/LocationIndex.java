@@ -0,0 +1,307 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import stdlib.StdOut;
+import stdlib.StdRandom;
+
+// An immutable data type for nearest-neighbour and radius queries over a set of locations.
+//
+// Each location is mapped to its unit vector in 3D and the vectors are stored in a balanced,
+// implicit kd-tree: the subtree over positions [lo, hi) of the arrays has its root at the middle
+// position and its two halves on either side. Great-circle distance grows with the straight-line
+// (chord) distance between unit vectors, so pruning by chord distance against the splitting
+// planes is exact.
+public class LocationIndex {
+    // Ranges at most this long are built sequentially.
+    private static final int PARALLEL_CUTOFF = 1 << 13;
+
+    private Location[] locs; // the locations, in tree order
+    private double[] px;     // x coordinates of the unit vectors, in tree order
+    private double[] py;     // y coordinates of the unit vectors, in tree order
+    private double[] pz;     // z coordinates of the unit vectors, in tree order
+    private byte[] axis;     // splitting axis (0, 1 or 2) of the node at each position
+
+    // Constructs an index over the given locations, in O(n log n) time, in parallel.
+    public LocationIndex(Location[] locations) {
+        if (locations == null) {
+            throw new NullPointerException("locations is null");
+        }
+        int n = locations.length;
+        locs = new Location[n];
+        px = new double[n];
+        py = new double[n];
+        pz = new double[n];
+        axis = new byte[n];
+        for (int i = 0; i < n; i++) {
+            if (locations[i] == null) {
+                throw new NullPointerException("locations[" + i + "] is null");
+            }
+            locs[i] = locations[i];
+            px[i] = locations[i].x();
+            py[i] = locations[i].y();
+            pz[i] = locations[i].z();
+        }
+        ForkJoinPool.commonPool().invoke(new BuildTask(0, n));
+    }
+
+    // Returns the number of locations in this index.
+    public int size() {
+        return locs.length;
+    }
+
+    // Returns the location in this index closest to q, or null if the index is empty.
+    public Location nearest(Location q) {
+        Location[] a = nearest(q, 1);
+        return a.length == 0 ? null : a[0];
+    }
+
+    // Returns up to k locations in this index closest to q, nearest first.
+    public Location[] nearest(Location q, int k) {
+        if (q == null) {
+            throw new NullPointerException("q is null");
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException("Illegal k");
+        }
+        SpatialSupport.Heap heap = new SpatialSupport.Heap(Math.min(k, locs.length));
+        if (heap.capacity() > 0) {
+            nearest(0, locs.length, q.x(), q.y(), q.z(), heap);
+        }
+        int[] pos = heap.drain();
+        Location[] result = new Location[pos.length];
+        for (int i = 0; i < pos.length; i++) {
+            result[i] = locs[pos[i]];
+        }
+        return result;
+    }
+
+    // Returns the locations in this index within the given great-circle distance (in km) of q,
+    // nearest first.
+    public Location[] withinDistance(Location q, double km) {
+        if (km < 0) {
+            throw new IllegalArgumentException("Illegal distance");
+        }
+        return inCap(q, Math.toDegrees(km / Location.RADIUS));
+    }
+
+    // Returns the locations in this index inside the spherical cap centered at q with the given
+    // angular radius (in degrees), nearest first.
+    public Location[] inCap(Location q, double degrees) {
+        if (q == null) {
+            throw new NullPointerException("q is null");
+        }
+        if (degrees < 0) {
+            throw new IllegalArgumentException("Illegal angle");
+        }
+
+        // A cap of angular radius t is a ball of chord radius 2 sin(t / 2) around q's vector.
+        double t = Math.min(Math.PI, Math.toRadians(degrees));
+        double chord = 2 * Math.sin(t / 2);
+        List<Integer> hits = new ArrayList<Integer>();
+        within(0, locs.length, q.x(), q.y(), q.z(), chord * chord, hits);
+
+        // Order the hits by their distance to q.
+        double[] keys = new double[hits.size()];
+        Integer[] order = new Integer[hits.size()];
+        for (int i = 0; i < keys.length; i++) {
+            int p = hits.get(i);
+            keys[i] = dist2(p, q.x(), q.y(), q.z());
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(keys[a], keys[b]));
+        Location[] result = new Location[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            result[i] = locs[hits.get(order[i])];
+        }
+        return result;
+    }
+
+    // Collects into heap the locations in the subtree over [lo, hi) closest to (x, y, z).
+    private void nearest(int lo, int hi, double x, double y, double z,
+                         SpatialSupport.Heap heap) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        heap.offer(dist2(mid, x, y, z), mid);
+        double diff = coordinate(mid, axis[mid], x, y, z);
+        if (diff < 0) {
+            nearest(lo, mid, x, y, z, heap);
+            if (!heap.isFull() || diff * diff < heap.max()) {
+                nearest(mid + 1, hi, x, y, z, heap);
+            }
+        } else {
+            nearest(mid + 1, hi, x, y, z, heap);
+            if (!heap.isFull() || diff * diff < heap.max()) {
+                nearest(lo, mid, x, y, z, heap);
+            }
+        }
+    }
+
+    // Collects into hits the positions in the subtree over [lo, hi) whose squared chord
+    // distance to (x, y, z) is at most r2.
+    private void within(int lo, int hi, double x, double y, double z, double r2,
+                        List<Integer> hits) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (dist2(mid, x, y, z) <= r2) {
+            hits.add(mid);
+        }
+        double diff = coordinate(mid, axis[mid], x, y, z);
+        if (diff < 0 || diff * diff <= r2) {
+            within(lo, mid, x, y, z, r2, hits);
+        }
+        if (diff >= 0 || diff * diff <= r2) {
+            within(mid + 1, hi, x, y, z, r2, hits);
+        }
+    }
+
+    // Returns the signed offset of (x, y, z) from the splitting plane of the node at position p.
+    private double coordinate(int p, int a, double x, double y, double z) {
+        if (a == 0) {
+            return x - px[p];
+        }
+        if (a == 1) {
+            return y - py[p];
+        }
+        return z - pz[p];
+    }
+
+    // Returns the squared chord distance between the vector at position p and (x, y, z).
+    private double dist2(int p, double x, double y, double z) {
+        double dx = px[p] - x;
+        double dy = py[p] - y;
+        double dz = pz[p] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    // Builds the subtree over [lo, hi): splits on the axis of greatest spread, and moves the
+    // median along that axis to the middle position.
+    private void build(int lo, int hi) {
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            int a = widestAxis(lo, hi);
+            axis[mid] = (byte) a;
+            select(lo, hi - 1, mid, a == 0 ? px : a == 1 ? py : pz);
+            build(lo, mid);
+            lo = mid + 1;
+        }
+    }
+
+    // Returns the axis (0, 1 or 2) along which the vectors in [lo, hi) are most spread out.
+    private int widestAxis(int lo, int hi) {
+        double[] min = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+            Double.POSITIVE_INFINITY};
+        double[] max = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+            Double.NEGATIVE_INFINITY};
+        for (int i = lo; i < hi; i++) {
+            min[0] = Math.min(min[0], px[i]);
+            max[0] = Math.max(max[0], px[i]);
+            min[1] = Math.min(min[1], py[i]);
+            max[1] = Math.max(max[1], py[i]);
+            min[2] = Math.min(min[2], pz[i]);
+            max[2] = Math.max(max[2], pz[i]);
+        }
+        int a = 0;
+        for (int i = 1; i < 3; i++) {
+            if (max[i] - min[i] > max[a] - min[a]) {
+                a = i;
+            }
+        }
+        return a;
+    }
+
+    // Rearranges positions [lo, hi] so that position k holds the k-th smallest key, with no
+    // larger keys before it and no smaller keys after it.
+    private void select(int lo, int hi, int k, double[] key) {
+        SpatialSupport.select(key, lo, hi, k, this::swap);
+    }
+
+    // Swaps the entries at positions i and j.
+    private void swap(int i, int j) {
+        Location l = locs[i];
+        locs[i] = locs[j];
+        locs[j] = l;
+        double t = px[i];
+        px[i] = px[j];
+        px[j] = t;
+        t = py[i];
+        py[i] = py[j];
+        py[j] = t;
+        t = pz[i];
+        pz[i] = pz[j];
+        pz[j] = t;
+    }
+
+    // A fork-join task that builds the subtree over a range of positions.
+    private class BuildTask extends RecursiveAction {
+        private int lo; // first position (inclusive)
+        private int hi; // last position (exclusive)
+
+        // Constructs a task for the subtree over [lo, hi).
+        BuildTask(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        // Places the root of the subtree, then builds its two halves in parallel.
+        protected void compute() {
+            if (hi - lo <= PARALLEL_CUTOFF) {
+                build(lo, hi);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            int a = widestAxis(lo, hi);
+            axis[mid] = (byte) a;
+            select(lo, hi - 1, mid, a == 0 ? px : a == 1 ? py : pz);
+            invokeAll(new BuildTask(lo, mid), new BuildTask(mid + 1, hi));
+        }
+    }
+
+    // Unit tests the data type.
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        int k = Integer.parseInt(args[1]);
+        double km = Double.parseDouble(args[2]);
+        Location[] locations = new Location[n];
+        for (int i = 0; i < n; i++) {
+            double lat = Math.toDegrees(Math.asin(StdRandom.uniform(-1.0, 1.0)));
+            double lon = StdRandom.uniform(-180.0, 180.0);
+            locations[i] = new Location("L" + i, lat, lon);
+        }
+        long start = System.nanoTime();
+        LocationIndex index = new LocationIndex(locations);
+        StdOut.printf("built index over %d locations in %.3f s\n", n,
+                (System.nanoTime() - start) / 1e9);
+
+        // Compare against a linear scan for a few random queries.
+        boolean agree = true;
+        for (int t = 0; t < 20; t++) {
+            Location q = new Location("q", StdRandom.uniform(-90.0, 90.0),
+                    StdRandom.uniform(-180.0, 180.0));
+            double[] d = Location.distancesTo(q, locations);
+            double[] sorted = d.clone();
+            Arrays.sort(sorted);
+            Location[] near = index.nearest(q, k);
+            for (int i = 0; i < near.length; i++) {
+                agree &= Math.abs(q.distanceTo(near[i]) - sorted[i]) < 1e-9;
+            }
+            int count = 0;
+            for (double x : d) {
+                count += x <= km ? 1 : 0;
+            }
+            agree &= near.length == Math.min(k, n) && index.withinDistance(q, km).length == count;
+        }
+        StdOut.println("agrees with linear scan? " + agree);
+        Location q = new Location("Parthenon", 37.971525, 23.726726);
+        StdOut.printf("nearest %d to %s:\n", k, q);
+        for (Location l : index.nearest(q, k)) {
+            StdOut.printf("  %s at %.1f km\n", l, q.distanceTo(l));
+        }
+    }
+}
@@ -18,10 +18,10 @@ public class Point3D implements Comparable<Point3D> {
 
     // Returns the Euclidean distance between this point and other.
     public double distance(Point3D other) {
-        double setx = (this.x - other.x) * (this.x - other.x);
-        double sety =  (this.y - other.y) * (this.y - other.y);
-        double setz = (this.z - other.z) * (this.z - other.z);
-        return (Math.sqrt(setx + sety + setz));
+        double dx = this.x - other.x;
+        double dy = this.y - other.y;
+        double dz = this.z - other.z;
+        return (Math.sqrt(dx * dx + dy * dy + dz * dz));
 
     }
 
@@ -33,10 +33,28 @@ public class Point3D implements Comparable<Point3D> {
     // Returns a comparison of this point with other based on their respective distances to the
     // origin (0, 0, 0).
     public int compareTo(Point3D other) {
-        Point3D origin = new Point3D(0, 0, 0);
-        double aDist = this.distance(origin);
-        double bDist = other.distance(origin);
-        return Double.compare(aDist, bDist);
+        // Squared norms order the points the same way as their distances to the origin.
+        return Double.compare(this.norm2(), other.norm2());
+    }
+
+    // Returns the x coordinate of this point.
+    double x() {
+        return x;
+    }
+
+    // Returns the y coordinate of this point.
+    double y() {
+        return y;
+    }
+
+    // Returns the z coordinate of this point.
+    double z() {
+        return z;
+    }
+
+    // Returns the squared distance between this point and the origin.
+    double norm2() {
+        return x * x + y * y + z * z;
     }
 
     // Returns a comparator to compare two points by their x-coordinate.
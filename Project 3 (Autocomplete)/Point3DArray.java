@@ -0,0 +1,316 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import stdlib.StdOut;
+import stdlib.StdRandom;
+
+// A data type to represent a growable collection of points in 3D, stored as parallel arrays of
+// coordinates (structure of arrays) rather than as Point3D objects.
+//
+// Sorts are done in place on primitive keys: the keys are mapped to longs that order the same
+// way as Double.compare(), a permutation is computed with a stable LSD radix sort, and the
+// permutation is then applied to every coordinate array.
+public class Point3DArray implements Iterable<Point3DArray.View> {
+    private double[] x;     // x coordinates
+    private double[] y;     // y coordinates
+    private double[] z;     // z coordinates
+    private double[] norm2; // squared distances to the origin
+    private int n;          // number of points
+
+    // Constructs an empty collection.
+    public Point3DArray() {
+        this(8);
+    }
+
+    // Constructs an empty collection with room for capacity points.
+    public Point3DArray(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity");
+        }
+        x = new double[capacity];
+        y = new double[capacity];
+        z = new double[capacity];
+        norm2 = new double[capacity];
+        n = 0;
+    }
+
+    // Constructs a collection holding the given points, in order.
+    public Point3DArray(Point3D[] points) {
+        this(points.length);
+        for (Point3D p : points) {
+            add(p);
+        }
+    }
+
+    // Returns true if this collection is empty, and false otherwise.
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    // Returns the number of points in this collection.
+    public int size() {
+        return n;
+    }
+
+    // Adds the point (px, py, pz) to the end of this collection.
+    public void add(double px, double py, double pz) {
+        if (n == x.length) {
+            resize(Math.max(8, 2 * n));
+        }
+        x[n] = px;
+        y[n] = py;
+        z[n] = pz;
+        norm2[n] = px * px + py * py + pz * pz;
+        n++;
+    }
+
+    // Adds the point p to the end of this collection.
+    public void add(Point3D p) {
+        if (p == null) {
+            throw new NullPointerException("p is null");
+        }
+        add(p.x(), p.y(), p.z());
+    }
+
+    // Returns the x coordinate of point i.
+    public double x(int i) {
+        return x[check(i)];
+    }
+
+    // Returns the y coordinate of point i.
+    public double y(int i) {
+        return y[check(i)];
+    }
+
+    // Returns the z coordinate of point i.
+    public double z(int i) {
+        return z[check(i)];
+    }
+
+    // Returns the squared distance between point i and the origin.
+    public double norm2(int i) {
+        return norm2[check(i)];
+    }
+
+    // Returns point i as a new Point3D object.
+    public Point3D get(int i) {
+        check(i);
+        return new Point3D(x[i], y[i], z[i]);
+    }
+
+    // Sorts this collection by x coordinate, like Point3D.xOrder(). The sort is stable.
+    public void sortByX() {
+        sortBy(x);
+    }
+
+    // Sorts this collection by y coordinate, like Point3D.yOrder(). The sort is stable.
+    public void sortByY() {
+        sortBy(y);
+    }
+
+    // Sorts this collection by z coordinate, like Point3D.zOrder(). The sort is stable.
+    public void sortByZ() {
+        sortBy(z);
+    }
+
+    // Sorts this collection by distance to the origin, like Point3D.compareTo(). The sort is
+    // stable.
+    public void sortByNorm() {
+        sortBy(norm2);
+    }
+
+    // Returns the permutation that would stably sort this collection by x coordinate, without
+    // rearranging it: the point at sorted position i is point perm[i].
+    public int[] indexByX() {
+        return index(x);
+    }
+
+    // Returns the permutation that would stably sort this collection by y coordinate.
+    public int[] indexByY() {
+        return index(y);
+    }
+
+    // Returns the permutation that would stably sort this collection by z coordinate.
+    public int[] indexByZ() {
+        return index(z);
+    }
+
+    // Returns the permutation that would stably sort this collection by distance to the origin.
+    public int[] indexByNorm() {
+        return index(norm2);
+    }
+
+    // Returns an iterator over the points in this collection, in order. To avoid allocating per
+    // point, the iterator returns the same View object every time, moved to the next point; a
+    // view must not be kept after the next call to next().
+    public Iterator<View> iterator() {
+        return new ViewIterator();
+    }
+
+    // Returns a string representation of this collection.
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append("(").append(x[i]).append(", ").append(y[i]).append(", ").append(z[i]);
+            sb.append(")");
+            if (i < n - 1) {
+                sb.append(", ");
+            }
+        }
+        return "[" + sb + "]";
+    }
+
+    // A lightweight, reusable view of one point in the collection.
+    public class View {
+        private int i; // index of the point in view
+
+        // Returns the index of the point in view.
+        public int index() {
+            return i;
+        }
+
+        // Returns the x coordinate of the point in view.
+        public double x() {
+            return x[i];
+        }
+
+        // Returns the y coordinate of the point in view.
+        public double y() {
+            return y[i];
+        }
+
+        // Returns the z coordinate of the point in view.
+        public double z() {
+            return z[i];
+        }
+
+        // Returns the squared distance between the point in view and the origin.
+        public double norm2() {
+            return norm2[i];
+        }
+
+        // Returns a string representation of the point in view.
+        public String toString() {
+            return "(" + x[i] + ", " + y[i] + ", " + z[i] + ")";
+        }
+    }
+
+    // An iterator that moves a single view through the collection.
+    private class ViewIterator implements Iterator<View> {
+        private View view; // the reused view
+        private int next;  // index of the next point
+
+        // Constructs an iterator.
+        ViewIterator() {
+            view = new View();
+            next = 0;
+        }
+
+        // Returns true if there are more points to iterate, and false otherwise.
+        public boolean hasNext() {
+            return next < n;
+        }
+
+        // Returns the view, moved to the next point.
+        public View next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("Iterator is empty");
+            }
+            view.i = next++;
+            return view;
+        }
+    }
+
+    // Stably sorts every array of this collection by key.
+    private void sortBy(double[] key) {
+        int[] perm = index(key);
+        x = permute(x, perm);
+        y = permute(y, perm);
+        z = permute(z, perm);
+        norm2 = permute(norm2, perm);
+    }
+
+    // Returns the permutation that stably sorts key[0, n).
+    private int[] index(double[] key) {
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+        }
+        return SpatialSupport.sortBy(perm, new int[n], key);
+    }
+
+    // Returns a new array whose i-th entry is a[perm[i]], sized like a.
+    private double[] permute(double[] a, int[] perm) {
+        double[] b = new double[a.length];
+        for (int i = 0; i < n; i++) {
+            b[i] = a[perm[i]];
+        }
+        return b;
+    }
+
+    // Returns i if it is a legal index, and throws otherwise.
+    private int check(int i) {
+        if (i < 0 || i >= n) {
+            throw new IndexOutOfBoundsException("Illegal index " + i);
+        }
+        return i;
+    }
+
+    // Resizes the underlying arrays.
+    private void resize(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+        norm2 = Arrays.copyOf(norm2, capacity);
+    }
+
+    // Unit tests the data type.
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        Point3D[] points = new Point3D[n];
+        Point3DArray a = new Point3DArray();
+        for (int i = 0; i < n; i++) {
+            points[i] = new Point3D(StdRandom.gaussian(), StdRandom.gaussian(),
+                    StdRandom.uniform(-3, 4));
+            a.add(points[i]);
+        }
+        StdOut.println("sortByX() agrees with xOrder()?      "
+                + agrees(a, points, Point3D.xOrder(), 0));
+        StdOut.println("sortByY() agrees with yOrder()?      "
+                + agrees(a, points, Point3D.yOrder(), 1));
+        StdOut.println("sortByZ() agrees with zOrder()?      "
+                + agrees(a, points, Point3D.zOrder(), 2));
+        StdOut.println("sortByNorm() agrees with compareTo()? "
+                + agrees(a, points, Comparator.naturalOrder(), 3));
+        double sum = 0;
+        for (View v : a) {
+            sum += v.norm2();
+        }
+        StdOut.printf("sum of squared norms = %.6f\n", sum);
+    }
+
+    // Sorts a by the given key (0 = x, 1 = y, 2 = z, 3 = norm), stably sorts points by c, and
+    // returns true if they end up in the same order, and false otherwise.
+    private static boolean agrees(Point3DArray a, Point3D[] points, Comparator<Point3D> c,
+                                  int key) {
+        if (key == 0) {
+            a.sortByX();
+        } else if (key == 1) {
+            a.sortByY();
+        } else if (key == 2) {
+            a.sortByZ();
+        } else {
+            a.sortByNorm();
+        }
+        Arrays.sort(points, c);
+        for (int i = 0; i < points.length; i++) {
+            Point3D p = points[i];
+            if (p.x() != a.x(i) || p.y() != a.y(i) || p.z() != a.z(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,31 @@
+public interface Point3DST<Value> {
+    // Returns true if this symbol table is empty, and false otherwise.
+    public boolean isEmpty();
+
+    // Returns the number of key-value pairs in this symbol table.
+    public int size();
+
+    // Inserts the given point and value into this symbol table.
+    public void put(Point3D p, Value value);
+
+    // Returns the value associated with the given point in this symbol table, or null.
+    public Value get(Point3D p);
+
+    // Returns true if this symbol table contains the given point, and false otherwise.
+    public boolean contains(Point3D p);
+
+    // Returns all the points in this symbol table.
+    public Iterable<Point3D> points();
+
+    // Returns all the points in this symbol table that are inside the axis-aligned box with
+    // opposite corners lo and hi (boundary included).
+    public Iterable<Point3D> range(Point3D lo, Point3D hi);
+
+    // Returns the point in this symbol table that is different from and closest to the given point,
+    // or null.
+    public Point3D nearest(Point3D p);
+
+    // Returns up to k points from this symbol table that are different from and closest to the
+    // given point.
+    public Iterable<Point3D> nearest(Point3D p, int k);
+}
@@ -0,0 +1,254 @@
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import stdlib.StdOut;
+import stdlib.StdRandom;
+
+// A library of the array routines shared by Point3DArray, LocationIndex and KdTreePoint3DST: a
+// stable sort of positions by a double key, quickselect over parallel arrays, and a bounded heap
+// for k-nearest-neighbour searches.
+class SpatialSupport {
+    // Arrays at most this long are sorted with insertion sort instead of a radix sort.
+    private static final int RADIX_CUTOFF = 256;
+
+    // Not instantiable.
+    private SpatialSupport() {
+    }
+
+    // Exchanges the entries at two positions of a set of parallel arrays.
+    interface Swapper {
+        // Exchanges the entries at positions i and j.
+        void swap(int i, int j);
+    }
+
+    // Stably sorts perm by key[perm[i]] in Double.compare() order, using aux (as long as perm)
+    // as scratch space. Returns the sorted permutation, which may be aux.
+    //
+    // Each key is mapped to a long that orders the same way, then the longs are LSD radix sorted
+    // one byte at a time, skipping bytes all keys share.
+    static int[] sortBy(int[] perm, int[] aux, double[] key) {
+        int m = perm.length;
+        if (m <= RADIX_CUTOFF) {
+            insertionSort(perm, key);
+            return perm;
+        }
+
+        // Flip the sign bit of non-negative keys, and every bit of negative ones.
+        long[] keys = new long[m];
+        long[] auxKeys = new long[m];
+        for (int i = 0; i < m; i++) {
+            long bits = Double.doubleToLongBits(key[perm[i]]);
+            keys[i] = bits ^ ((bits >> 63) | Long.MIN_VALUE);
+        }
+        int[] count = new int[257];
+        for (int shift = 0; shift < 64; shift += 8) {
+            Arrays.fill(count, 0);
+            for (int i = 0; i < m; i++) {
+                count[(int) (keys[i] >>> shift & 0xff) + 1]++;
+            }
+            if (count[(int) (keys[0] >>> shift & 0xff) + 1] == m) {
+                continue;
+            }
+            for (int r = 0; r < 256; r++) {
+                count[r + 1] += count[r];
+            }
+            for (int i = 0; i < m; i++) {
+                int d = count[(int) (keys[i] >>> shift & 0xff)]++;
+                auxKeys[d] = keys[i];
+                aux[d] = perm[i];
+            }
+            long[] tk = keys;
+            keys = auxKeys;
+            auxKeys = tk;
+            int[] tp = perm;
+            perm = aux;
+            aux = tp;
+        }
+        return perm;
+    }
+
+    // Stably sorts perm by key[perm[i]], using Double.compare() order (insertion sort).
+    private static void insertionSort(int[] perm, double[] key) {
+        for (int i = 1; i < perm.length; i++) {
+            int p = perm[i];
+            double k = key[p];
+            int j = i;
+            while (j > 0 && Double.compare(key[perm[j - 1]], k) > 0) {
+                perm[j] = perm[j - 1];
+                j--;
+            }
+            perm[j] = p;
+        }
+    }
+
+    // Rearranges positions [lo, hi] of a set of parallel arrays, one of which is key, so that
+    // position k holds the k-th smallest key, with no larger keys before it and no smaller keys
+    // after it (Hoare's quickselect). Entries are moved with swapper.
+    static void select(double[] key, int lo, int hi, int k, Swapper swapper) {
+        while (lo < hi) {
+            swapper.swap(lo, ThreadLocalRandom.current().nextInt(lo, hi + 1));
+            double pivot = key[lo];
+            int i = lo;
+            int j = hi + 1;
+            while (true) {
+                while (key[++i] < pivot) {
+                    if (i == hi) {
+                        break;
+                    }
+                }
+                while (pivot < key[--j]) {
+                    if (j == lo) {
+                        break;
+                    }
+                }
+                if (i >= j) {
+                    break;
+                }
+                swapper.swap(i, j);
+            }
+            swapper.swap(lo, j);
+            if (j > k) {
+                hi = j - 1;
+            } else if (j < k) {
+                lo = j + 1;
+            } else {
+                return;
+            }
+        }
+    }
+
+    // A bounded max-heap of (squared distance, position) pairs, keeping the smallest distances.
+    static class Heap {
+        private int capacity;  // maximum number of pairs
+        private int n;         // number of pairs
+        private double[] keys; // squared distances, 1-based heap order
+        private int[] pos;     // positions, 1-based heap order
+
+        // Constructs an empty heap holding at most capacity pairs.
+        Heap(int capacity) {
+            this.capacity = capacity;
+            keys = new double[capacity + 1];
+            pos = new int[capacity + 1];
+        }
+
+        // Returns the maximum number of pairs in this heap.
+        int capacity() {
+            return capacity;
+        }
+
+        // Returns true if this heap holds capacity pairs, and false otherwise.
+        boolean isFull() {
+            return n == capacity;
+        }
+
+        // Returns the largest squared distance in this heap.
+        double max() {
+            return keys[1];
+        }
+
+        // Adds the pair (key, p), evicting the largest pair if this heap is full.
+        void offer(double key, int p) {
+            if (n < capacity) {
+                n++;
+                keys[n] = key;
+                pos[n] = p;
+                for (int k = n; k > 1 && keys[k / 2] < keys[k]; k /= 2) {
+                    exch(k, k / 2);
+                }
+            } else if (key < keys[1]) {
+                keys[1] = key;
+                pos[1] = p;
+                sink(1);
+            }
+        }
+
+        // Empties this heap and returns its positions, nearest first.
+        int[] drain() {
+            int[] a = new int[n];
+            while (n > 0) {
+                a[n - 1] = pos[1];
+                exch(1, n);
+                n--;
+                sink(1);
+            }
+            return a;
+        }
+
+        // Restores heap order below index k.
+        private void sink(int k) {
+            while (2 * k <= n) {
+                int j = 2 * k;
+                if (j < n && keys[j] < keys[j + 1]) {
+                    j++;
+                }
+                if (keys[k] >= keys[j]) {
+                    break;
+                }
+                exch(k, j);
+                k = j;
+            }
+        }
+
+        // Exchanges the pairs at indices i and j.
+        private void exch(int i, int j) {
+            double t = keys[i];
+            keys[i] = keys[j];
+            keys[j] = t;
+            int p = pos[i];
+            pos[i] = pos[j];
+            pos[j] = p;
+        }
+    }
+
+    // Unit tests the library.
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        double[] key = new double[n];
+        for (int i = 0; i < n; i++) {
+            key[i] = StdRandom.uniform(-50, 50) / 4.0;
+        }
+
+        // The sort must be stable, so ties keep their positions in order.
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+        }
+        perm = sortBy(perm, new int[n], key);
+        boolean sorted = true;
+        for (int i = 1; i < n; i++) {
+            int c = Double.compare(key[perm[i - 1]], key[perm[i]]);
+            sorted &= c < 0 || c == 0 && perm[i - 1] < perm[i];
+        }
+        StdOut.println("sortBy() sorted and stable? " + sorted);
+
+        // Select the median of a copy, then check no smaller key follows it or larger precedes.
+        double[] a = key.clone();
+        int k = n / 2;
+        if (n > 0) {
+            select(a, 0, n - 1, k, (i, j) -> {
+                double t = a[i];
+                a[i] = a[j];
+                a[j] = t;
+            });
+        }
+        boolean selected = true;
+        for (int i = 0; i < n; i++) {
+            selected &= i < k ? a[i] <= a[k] : a[i] >= a[k];
+        }
+        StdOut.println("select() places the median? " + selected);
+
+        // The heap must keep the k smallest keys, smallest first.
+        Heap heap = new Heap(Math.min(10, n));
+        for (int i = 0; i < n; i++) {
+            heap.offer(key[i], i);
+        }
+        int[] smallest = heap.drain();
+        double[] expected = key.clone();
+        Arrays.sort(expected);
+        boolean kept = true;
+        for (int i = 0; i < smallest.length; i++) {
+            kept &= key[smallest[i]] == expected[i];
+        }
+        StdOut.println("Heap keeps the smallest keys? " + kept);
+    }
+}